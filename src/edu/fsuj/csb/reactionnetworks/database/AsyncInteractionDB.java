@@ -0,0 +1,215 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.fsuj.csb.tools.organisms.Formula;
+import edu.fsuj.csb.tools.urn.URN;
+
+/**
+ * asynchronous variants of the InteractionDB lookups used to display entities.
+ *
+ * The lookups run on a bounded pool of worker threads, each of which borrows its connections from the InteractionDB connection pool.
+ * Concurrent requests for the same lookup and key share one database query and thus one future, so the results must not be modified.
+ * If all workers are busy and the queue is full, the lookup is run by the calling thread. Lookups submitted while the pool is shut down fail with a RejectedExecutionException.
+ * The pool is configured by the keys asyncThreads (default: poolMaxSize) and asyncQueueSize (default: 1000).
+ */
+public class AsyncInteractionDB {
+
+	/**
+	 * a lookup, which is registered as pending until it is done
+	 */
+	private static class Lookup<T> extends FutureTask<T> {
+		private final String key;
+
+		private Lookup(String key, Callable<T> callable) {
+			super(callable);
+			this.key = key;
+		}
+
+		protected void done() {
+			pending.remove(key, this);
+		}
+
+		/**
+		 * completes the lookup with an exception, e.g. if it could not be submitted
+		 */
+		private void fail(Throwable t) {
+			setException(t);
+		}
+	}
+
+	private static final ConcurrentHashMap<String, Lookup<?>> pending = new ConcurrentHashMap<String, Lookup<?>>();
+	private static final AtomicLong coalescedCount = new AtomicLong();
+	private static final Object executorLock = new Object();
+	private static volatile ThreadPoolExecutor executor = null;
+
+	/**
+	 * returns the executor running the lookups, creating it on first use
+	 *
+	 * @return the executor
+	 * @throws IOException if config file can not be read
+	 */
+	private static ThreadPoolExecutor executor() throws IOException {
+		ThreadPoolExecutor result = executor;
+		if (result != null) return result;
+		int threads = Math.max(1, InteractionDB.getConfigValue("asyncThreads", InteractionDB.getConfigValue("poolMaxSize", 8))); // read outside the lock, as it may access the config file
+		int queueSize = Math.max(1, InteractionDB.getConfigValue("asyncQueueSize", 1000));
+		synchronized (executorLock) {
+			if (executor == null) {
+				result = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+					private final AtomicInteger number = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "InteractionDB lookup " + number.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new RejectedExecutionHandler() {
+					public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+						if (pool.isShutdown()) throw new RejectedExecutionException("the lookup pool has been shut down");
+						r.run(); // all workers busy and queue full
+					}
+				});
+				result.allowCoreThreadTimeOut(true);
+				executor = result;
+			}
+			return executor;
+		}
+	}
+
+	/**
+	 * submits a lookup, unless an equal lookup is pending, in which case the future of the pending lookup is returned
+	 *
+	 * @param key identifies the lookup, i.e. method and parameter
+	 * @param callable performs the lookup
+	 * @return the future result. If the lookup could not be submitted, the future fails with the reason.
+	 * @throws IOException if config file can not be read
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Future<T> submit(String key, Callable<T> callable) throws IOException {
+		ThreadPoolExecutor executor = executor();
+		Lookup<T> lookup = new Lookup<T>(key, callable);
+		Lookup<T> existing = (Lookup<T>) pending.putIfAbsent(key, lookup);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			return existing;
+		}
+		try {
+			executor.execute(lookup);
+		} catch (RuntimeException e) {
+			lookup.fail(e); // removes the pending entry, so later lookups are submitted again
+		}
+		return lookup;
+	}
+
+	/**
+	 * waits for all futures and collects their results in the order of the futures
+	 *
+	 * @param futures the futures returned by the lookup methods of this class
+	 * @return the results
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws ExecutionException if one of the lookups failed
+	 */
+	public static <T> Vector<T> getAll(Collection<Future<T>> futures) throws InterruptedException, ExecutionException {
+		Vector<T> result = new Vector<T>(futures.size());
+		for (Future<T> future : futures) result.add(future.get());
+		return result;
+	}
+
+	/**
+	 * @see InteractionDB#getNames(int)
+	 */
+	public static Future<TreeSet<String>> getNames(final int id) throws IOException {
+		return submit("getNames:" + id, new Callable<TreeSet<String>>() {
+			public TreeSet<String> call() throws Exception {
+				return InteractionDB.getNames(id);
+			}
+		});
+	}
+
+	/**
+	 * @see InteractionDB#getFormula(int)
+	 */
+	public static Future<Formula> getFormula(final int id) throws IOException {
+		return submit("getFormula:" + id, new Callable<Formula>() {
+			public Formula call() throws Exception {
+				return InteractionDB.getFormula(id);
+			}
+		});
+	}
+
+	/**
+	 * @see InteractionDB#getURNsFor(int)
+	 */
+	public static Future<Vector<URN>> getURNsFor(final int id) throws IOException {
+		return submit("getURNsFor:" + id, new Callable<Vector<URN>>() {
+			public Vector<URN> call() throws Exception {
+				return InteractionDB.getURNsFor(id);
+			}
+		});
+	}
+
+	/**
+	 * @see InteractionDB#getReferencingURLs(int)
+	 */
+	public static Future<Vector<URL>> getReferencingURLs(final int id) throws IOException {
+		return submit("getReferencingURLs:" + id, new Callable<Vector<URL>>() {
+			public Vector<URL> call() throws Exception {
+				return InteractionDB.getReferencingURLs(id);
+			}
+		});
+	}
+
+	/**
+	 * @see InteractionDB#loadEnzymesOfCompartment(int)
+	 */
+	public static Future<TreeSet<Integer>> loadEnzymesOfCompartment(final int cid) throws IOException {
+		return submit("loadEnzymesOfCompartment:" + cid, new Callable<TreeSet<Integer>>() {
+			public TreeSet<Integer> call() throws Exception {
+				return InteractionDB.loadEnzymesOfCompartment(cid);
+			}
+		});
+	}
+
+	/**
+	 * @return the number of lookups, which were answered by an equal pending lookup
+	 */
+	public static long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of lookups submitted but not finished yet
+	 */
+	public static int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * stops the worker threads after the submitted lookups have been finished
+	 */
+	public static void shutdown() {
+		synchronized (executorLock) {
+			if (executor == null) return;
+			executor.shutdown();
+			executor = null;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * collects rows of the link tables (substrates, products, reaction_enzymes, reaction_directions) in memory and writes them in large batches.
+ *
+ * If the dialect provides a bulk loader (LOAD DATA LOCAL INFILE for MySQL), the rows of a table are written to a tab separated staging file, which is loaded by one statement.
+ * Otherwise, or if the bulk loader is refused by the server, the rows are written by multi-row inserts of up to InteractionDB.CHUNK_SIZE rows.
+ * Rows with equal keys are collapsed while buffering; rows, whose key already exists in the database, are skipped (or replace the existing row for reaction_directions).
+ * The buffer of a table is flushed, when it holds bulkBufferSize (default: 100000) rows. All methods are thread safe.
+ */
+public class BulkLoader {
+
+	/**
+	 * the rows buffered for one table
+	 */
+	private static class Buffer {
+		private final String table;
+		private final String columns;
+		private final int keyColumns;
+		private final boolean replace;
+		private LinkedHashMap<String, Object[]> rows = new LinkedHashMap<String, Object[]>();
+
+		private Buffer(String table, String columns, int keyColumns, boolean replace) {
+			this.table = table;
+			this.columns = columns;
+			this.keyColumns = keyColumns;
+			this.replace = replace;
+		}
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final TreeMap<String, Buffer> buffers = new TreeMap<String, Buffer>();
+	private final int bufferSize;
+	private volatile boolean staging;
+	private long loadedRows = 0;
+
+	/**
+	 * creates a loader, configured by the keys bulkBufferSize (default: 100000) and bulkStaging (default: 1, use 0 to always use multi-row inserts)
+	 *
+	 * @throws IOException if config file can not be read
+	 */
+	BulkLoader() throws IOException {
+		bufferSize = Math.max(1, InteractionDB.getConfigValue("bulkBufferSize", 100000));
+		staging = InteractionDB.getConfigValue("bulkStaging", 1) != 0;
+	}
+
+	/**
+	 * buffers a row. If the buffer of the table is full, it is flushed by the calling thread.
+	 *
+	 * @param table the table
+	 * @param columns the comma separated list of columns, beginning with the primary key columns
+	 * @param keyColumns the number of primary key columns
+	 * @param replace if true, the row replaces a buffered or stored row with the same key, otherwise it is skipped in that case
+	 * @param values the values of the row
+	 * @return the number of rows written to the database by a flush, usually 0
+	 * @throws SQLException if a flush failed
+	 * @throws IOException
+	 */
+	int add(String table, String columns, int keyColumns, boolean replace, Object... values) throws SQLException, IOException {
+		StringBuffer key = new StringBuffer();
+		for (int i = 0; i < keyColumns; i++) key.append(values[i]).append('\t');
+		Buffer full = null;
+		lock.lock();
+		try {
+			Buffer buffer = buffers.get(table);
+			if (buffer == null) buffers.put(table, buffer = new Buffer(table, columns, keyColumns, replace));
+			if (replace) {
+				buffer.rows.put(key.toString(), values);
+			} else if (!buffer.rows.containsKey(key.toString())) buffer.rows.put(key.toString(), values);
+			if (buffer.rows.size() >= bufferSize) full = detach(buffer);
+		} finally {
+			lock.unlock();
+		}
+		if (full == null) return 0;
+		Vector<Buffer> detached = new Vector<Buffer>();
+		detached.add(full);
+		return write(detached);
+	}
+
+	/**
+	 * takes the rows out of a buffer, so other threads can continue buffering while they are written. Must be called with the lock held.
+	 */
+	private static Buffer detach(Buffer buffer) {
+		Buffer detached = new Buffer(buffer.table, buffer.columns, buffer.keyColumns, buffer.replace);
+		detached.rows = buffer.rows;
+		buffer.rows = new LinkedHashMap<String, Object[]>();
+		return detached;
+	}
+
+	/**
+	 * puts rows back into the buffers, unless rows with the same key have been buffered meanwhile
+	 */
+	private void restore(Vector<Buffer> detached) {
+		lock.lock();
+		try {
+			for (Buffer old : detached) {
+				Buffer buffer = buffers.get(old.table);
+				for (Entry<String, Object[]> row : old.rows.entrySet()) {
+					if (!buffer.rows.containsKey(row.getKey())) buffer.rows.put(row.getKey(), row.getValue());
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * writes all buffered rows to the database. Within a transaction, the rows are written by it and buffered again, if it is rolled back.
+	 * Rows, which could not be written, stay buffered.
+	 *
+	 * @return the number of rows written
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	int flush() throws SQLException, IOException {
+		Vector<Buffer> detached = new Vector<Buffer>();
+		lock.lock();
+		try {
+			for (Buffer buffer : buffers.values()) {
+				if (!buffer.rows.isEmpty()) detached.add(detach(buffer));
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (detached.isEmpty()) return 0;
+		final Vector<Buffer> written = detached;
+		Transaction.onRollback(new Runnable() {
+			public void run() {
+				restore(written);
+			}
+		});
+		return write(detached);
+	}
+
+	/**
+	 * writes detached buffers. If writing fails, the buffers not written completely are restored, so their rows are written by the next flush.
+	 */
+	private int write(Vector<Buffer> detached) throws SQLException, IOException {
+		int result = 0;
+		int written = 0;
+		try {
+			for (; written < detached.size(); written++) result += write(detached.get(written));
+		} finally {
+			if (written < detached.size()) restore(new Vector<Buffer>(detached.subList(written, detached.size())));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of rows buffered, but not written yet
+	 */
+	int getBufferedCount() {
+		lock.lock();
+		try {
+			int result = 0;
+			for (Buffer buffer : buffers.values()) result += buffer.rows.size();
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of rows written so far
+	 */
+	long getLoadedCount() {
+		lock.lock();
+		try {
+			return loadedRows;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int write(Buffer buffer) throws SQLException, IOException {
+		Tools.startMethod("BulkLoader.write(" + buffer.table + ", " + buffer.rows.size() + " rows)");
+		int result = -1;
+		if (staging) result = load(buffer);
+		if (result < 0) result = insert(buffer);
+		lock.lock();
+		try {
+			loadedRows += result;
+		} finally {
+			lock.unlock();
+		}
+		Tools.endMethod(result);
+		return result;
+	}
+
+	/**
+	 * writes the rows to a staging file and loads it with the bulk loader of the database
+	 *
+	 * @return the number of rows loaded or -1, if the database has no bulk loader or refused to use it
+	 */
+	private int load(Buffer buffer) throws SQLException, IOException {
+		final File file = File.createTempFile(buffer.table + "_", ".tsv");
+		try {
+			final String statement = InteractionDB.dialect().bulkLoad(buffer.table, buffer.columns, file.getAbsolutePath(), buffer.replace);
+			if (statement == null) {
+				staging = false;
+				return -1;
+			}
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+			try {
+				for (Object[] row : buffer.rows.values()) {
+					for (int i = 0; i < row.length; i++) {
+						if (i > 0) writer.write('\t');
+						writer.write(field(row[i]));
+					}
+					writer.write('\n');
+				}
+			} finally {
+				writer.close();
+			}
+			try {
+				return InteractionDB.retryPolicy().run(new RetryPolicy.Operation<Integer>() { // the file is loaded with IGNORE or REPLACE, so repeating it is safe
+					public Integer run() throws SQLException, IOException {
+						Statement st = InteractionDB.createStatement();
+						try {
+							return st.executeUpdate(statement);
+						} finally {
+							st.close();
+						}
+					}
+				}, true);
+			} catch (SQLException e) {
+				if (RetryPolicy.isTransient(e)) throw e;
+				Tools.warn("bulk load refused (" + e.getMessage() + "), using multi-row inserts from now on");
+				staging = false;
+				return -1;
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * @return the value as field of a staging file
+	 */
+	private static String field(Object value) {
+		if (value == null) return "\\N";
+		if (value instanceof Boolean) return ((Boolean) value) ? "1" : "0";
+		return value.toString().replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+	}
+
+	/**
+	 * writes the rows by multi-row inserts
+	 *
+	 * @return the number of rows inserted
+	 */
+	private int insert(Buffer buffer) throws SQLException, IOException {
+		int result = 0;
+		Vector<Object> values = new Vector<Object>();
+		int rows = 0;
+		for (Iterator<Object[]> it = buffer.rows.values().iterator(); it.hasNext();) {
+			for (Object value : it.next()) values.add(value);
+			if (++rows == InteractionDB.CHUNK_SIZE || !it.hasNext()) {
+				Dialect dialect = InteractionDB.dialect();
+				String statement = buffer.replace ? dialect.upsert(buffer.table, buffer.columns, buffer.keyColumns, rows) : dialect.insertIgnore(buffer.table, buffer.columns, buffer.keyColumns, rows);
+				result += InteractionDB.update(statement, values);
+				values.clear();
+				rows = 0;
+			}
+		}
+		return result;
+	}
+
+	public String toString() {
+		return "BulkLoader(buffered: " + getBufferedCount() + "/" + bufferSize + " per table, loaded: " + getLoadedCount() + (staging ? ", staging files" : ", multi-row inserts") + ")";
+	}
+}
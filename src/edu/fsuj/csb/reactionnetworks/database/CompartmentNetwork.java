@@ -0,0 +1,147 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.util.Arrays;
+
+/**
+ * the reaction network of a compartment (organism), as loaded by InteractionDB.loadCompartmentNetwork: the reactions catalyzed by the enzymes of the compartment and the substances they act on.
+ *
+ * The network is a bipartite graph stored in compressed rows. The reaction side is the Stoichiometries of the reactions, the substance side holds,
+ * for the i-th substance of substanceIds(), the positions of the reactions consuming it at consumerStart[i] to consumerStart[i+1]-1 of consumers(),
+ * and the positions of the reactions producing it likewise. Positions refer to reactionIds(), so the graph can be traversed without looking up ids.
+ * The arrays returned by the accessors are the internal ones and must not be modified.
+ */
+public class CompartmentNetwork {
+
+	private final int cid;
+	private final Stoichiometries stoichiometries;
+	private final byte[] directions;
+	private final boolean[] spontaneous;
+	private final int[] sids;
+	private final int[] consumerStart, consumers;
+	private final int[] producerStart, producers;
+
+	/**
+	 * @param cid the compartment
+	 * @param stoichiometries the substrates and products of the reactions
+	 * @param directions the directions of the reactions, in the order of stoichiometries.reactionIds(), as returned by InteractionDB.readDirections
+	 * @param spontaneous the spontan flags of the reactions, in the same order
+	 */
+	CompartmentNetwork(int cid, Stoichiometries stoichiometries, byte[] directions, boolean[] spontaneous) {
+		this.cid = cid;
+		this.stoichiometries = stoichiometries;
+		this.directions = directions;
+		this.spontaneous = spontaneous;
+		sids = distinct(stoichiometries.substrateIds(), stoichiometries.productIds());
+		consumerStart = new int[sids.length + 1];
+		consumers = invert(stoichiometries.substrateStart(), stoichiometries.substrateIds(), consumerStart);
+		producerStart = new int[sids.length + 1];
+		producers = invert(stoichiometries.productStart(), stoichiometries.productIds(), producerStart);
+	}
+
+	/**
+	 * @return the sorted distinct values of both arrays
+	 */
+	private static int[] distinct(int[] a, int[] b) {
+		int[] all = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, all, a.length, b.length);
+		Arrays.sort(all);
+		int count = 0;
+		for (int i = 0; i < all.length; i++) {
+			if (count == 0 || all[count - 1] != all[i]) all[count++] = all[i];
+		}
+		return Arrays.copyOf(all, count);
+	}
+
+	/**
+	 * turns the compressed rows from reactions to substances into compressed rows from substances to reaction positions
+	 *
+	 * @param start the row starts of the reactions
+	 * @param ids the substance ids
+	 * @param inverseStart receives the row starts of the substances
+	 * @return the reaction positions
+	 */
+	private int[] invert(int[] start, int[] ids, int[] inverseStart) {
+		int[] substanceIndex = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			substanceIndex[i] = Arrays.binarySearch(sids, ids[i]);
+			inverseStart[substanceIndex[i] + 1]++;
+		}
+		for (int s = 0; s < sids.length; s++) inverseStart[s + 1] += inverseStart[s];
+		int[] result = new int[ids.length];
+		int[] next = Arrays.copyOf(inverseStart, sids.length);
+		for (int r = 0; r + 1 < start.length; r++) {
+			for (int i = start[r]; i < start[r + 1]; i++) result[next[substanceIndex[i]]++] = r;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the id of the compartment
+	 */
+	public int getCompartmentId() {
+		return cid;
+	}
+
+	/**
+	 * @return the substrates and products of the reactions
+	 */
+	public Stoichiometries getStoichiometries() {
+		return stoichiometries;
+	}
+
+	/**
+	 * @return the sorted ids of the reactions
+	 */
+	public int[] reactionIds() {
+		return stoichiometries.reactionIds();
+	}
+
+	/**
+	 * @return the sorted ids of the substances consumed or produced by the reactions
+	 */
+	public int[] substanceIds() {
+		return sids;
+	}
+
+	/**
+	 * @param sid a substance id
+	 * @return the position of the substance in substanceIds() or a negative value, if no reaction of the network acts on it
+	 */
+	public int indexOfSubstance(int sid) {
+		return Arrays.binarySearch(sids, sid);
+	}
+
+	/**
+	 * @return the directions of the reactions in this compartment, in the order of reactionIds(). 0 means, that no direction is stored.
+	 */
+	public byte[] directions() {
+		return directions;
+	}
+
+	/**
+	 * @return the spontan flags of the reactions, in the order of reactionIds()
+	 */
+	public boolean[] spontaneous() {
+		return spontaneous;
+	}
+
+	public int[] consumerStart() {
+		return consumerStart;
+	}
+
+	public int[] consumers() {
+		return consumers;
+	}
+
+	public int[] producerStart() {
+		return producerStart;
+	}
+
+	public int[] producers() {
+		return producers;
+	}
+
+	public String toString() {
+		return "CompartmentNetwork(" + cid + ": " + reactionIds().length + " reactions, " + sids.length + " substances)";
+	}
+}
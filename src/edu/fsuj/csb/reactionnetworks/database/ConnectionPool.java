@@ -0,0 +1,875 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * a bounded pool of database connections.
+ *
+ * Connections are leased to threads: a thread requesting a connection while it already holds one gets the same connection again.
+ * The connection goes back to the pool, as soon as all statements created on it have been closed.
+ * Prepared statements are cached per connection, closing them only hands them back to the cache.
+ * Idle connections are validated in the background, so that threads borrowing a connection usually do not have to wait for a validation round trip.
+ * Connections leased to a thread for longer than leakWarningTime are reported once, as they are probably leaked by a statement, which has not been closed.
+ * All time spans are measured with the monotonic System.nanoTime().
+ */
+public class ConnectionPool {
+
+	/**
+	 * opens the physical connections held by the pool
+	 */
+	interface ConnectionFactory {
+		public Connection connect() throws SQLException;
+	}
+
+	/**
+	 * a prepared statement held in the cache of a connection
+	 */
+	private static class CachedStatement {
+		private final PreparedStatement statement;
+		private boolean inUse = false;
+		private boolean evicted = false;
+
+		private CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	/**
+	 * a physical connection together with its lease information and its prepared statements
+	 */
+	private class PooledConnection {
+		private final Connection connection;
+		private Thread owner = null;
+		private int references = 0;
+		private long lastUse = System.nanoTime();
+		private long lastValidation = lastUse;
+		private boolean discarded = false;
+		private volatile boolean broken = false; // set, when a statement failed due to a connection failure
+		private int transactionDepth = 0; // number of nested transactions of the owning thread
+		private long leasedSince; // when the connection was leased to its owner
+		private boolean leakReported = false;
+		private final LinkedHashMap<String, CachedStatement> statementCache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= statementCacheSize) return false;
+				CachedStatement cs = eldest.getValue();
+				cs.evicted = true;
+				if (!cs.inUse) closeQuietly(cs.statement);
+				return true;
+			}
+		};
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+	}
+
+	/**
+	 * the share of a connection lease held by one statement. It is returned, when the statement is closed.
+	 */
+	class Lease {
+		private final PooledConnection pooledConnection;
+		private final CachedStatement cached;
+		private boolean released = false;
+
+		private Lease(PooledConnection pooledConnection, CachedStatement cached) {
+			this.pooledConnection = pooledConnection;
+			this.cached = cached;
+		}
+
+		/**
+		 * closes the statement or hands it back to the statement cache, and releases the connection
+		 */
+		void close(Statement statement) throws SQLException {
+			try {
+				if (cached == null) {
+					statement.close();
+				} else if (!released) {
+					cached.inUse = false;
+					if (cached.evicted) cached.statement.close();
+				}
+			} finally {
+				if (!released) {
+					released = true;
+					release(pooledConnection);
+				}
+			}
+		}
+
+		/**
+		 * marks the connection as broken, if the exception signals a connection failure
+		 *
+		 * @return the exception
+		 */
+		SQLException failed(SQLException e) {
+			if (RetryPolicy.isConnectionFailure(e)) pooledConnection.broken = true;
+			return e;
+		}
+	}
+
+	private static final long EVICTION_INTERVAL = 30000;
+	private static final int VALIDATION_TIMEOUT = 5; // seconds
+
+	private final ConnectionFactory factory;
+	private final int minSize;
+	private final int maxSize;
+	private final long borrowTimeout;
+	private final long idleTimeout;
+	private final String validationQuery;
+	private final long validationInterval;
+	private final int statementCacheSize;
+	private final long leakWarningTime;
+	private volatile boolean driverValidation = true; // false, if the driver does not implement Connection.isValid
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition connectionReleased = lock.newCondition();
+	private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+	private final Vector<PooledConnection> leased = new Vector<PooledConnection>();
+	private final ThreadLocal<PooledConnection> lease = new ThreadLocal<PooledConnection>();
+	private final Timer evictor;
+	private int size = 0; // number of open connections, including those currently being opened
+	private boolean closed = false;
+
+	private long borrowCount = 0;
+	private long waitCount = 0;
+	private long timeoutCount = 0;
+	private long totalWaitMillis = 0;
+	private long maxWaitMillis = 0;
+	private long createdCount = 0;
+	private long destroyedCount = 0;
+	private long validationFailures = 0;
+	private long abandonedCount = 0;
+	private long leakCount = 0;
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementPrepares = new AtomicLong();
+
+	/**
+	 * creates a new connection pool
+	 *
+	 * @param factory used to open new connections
+	 * @param minSize number of connections kept open, even if they are idle
+	 * @param maxSize maximum number of connections opened at the same time
+	 * @param borrowTimeout time in milliseconds a thread waits for a free connection before giving up
+	 * @param idleTimeout time in milliseconds after which idle connections exceeding minSize are closed
+	 * @param validationQuery query used to check, whether a connection is still alive, if the driver does not support Connection.isValid
+	 * @param validationInterval idle connections are revalidated in the background every validationInterval milliseconds. Connections not validated or used for longer are validated before they are handed out
+	 * @param statementCacheSize maximum number of prepared statements cached per connection
+	 * @param leakWarningTime time in milliseconds, after which a connection leased to a living thread is reported as possibly leaked, 0 to disable the reports
+	 */
+	ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long borrowTimeout, long idleTimeout, String validationQuery, long validationInterval, int statementCacheSize, long leakWarningTime) {
+		this.factory = factory;
+		this.maxSize = Math.max(1, maxSize);
+		this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+		this.borrowTimeout = borrowTimeout;
+		this.idleTimeout = idleTimeout;
+		this.validationQuery = validationQuery;
+		this.validationInterval = validationInterval;
+		this.statementCacheSize = Math.max(0, statementCacheSize);
+		this.leakWarningTime = leakWarningTime;
+		evictor = new Timer("InteractionDB connection evictor", true);
+		evictor.schedule(new TimerTask() {
+			public void run() {
+				evict();
+			}
+		}, 0, Math.max(1000, Math.min(EVICTION_INTERVAL, validationInterval)));
+	}
+
+	/**
+	 * creates a statement on the connection leased to the current thread. The lease is returned, when the statement is closed.
+	 *
+	 * @return the statement
+	 * @throws SQLException if no connection can be obtained
+	 */
+	Statement createStatement() throws SQLException {
+		PooledConnection pc = acquire();
+		try {
+			return new LeasedStatement(pc.connection.createStatement(), new Lease(pc, null));
+		} catch (SQLException e) {
+			release(pc);
+			throw e;
+		}
+	}
+
+	/**
+	 * provides a prepared statement for the given sql on the connection leased to the current thread.
+	 * The statement is taken from the connection's statement cache, if possible. Closing it returns it to the cache and the lease to the pool.
+	 *
+	 * @param sql the statement template
+	 * @param autoGeneratedKeys either Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+	 * @return the prepared statement
+	 * @throws SQLException if no connection can be obtained or the statement can not be prepared
+	 */
+	PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		PooledConnection pc = acquire();
+		try {
+			String key = (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) ? "+" + sql : sql;
+			CachedStatement cs = pc.statementCache.get(key);
+			if (cs != null && !cs.inUse) {
+				statementCacheHits.incrementAndGet();
+				cs.statement.clearParameters();
+			} else {
+				statementPrepares.incrementAndGet();
+				PreparedStatement ps = pc.connection.prepareStatement(sql, autoGeneratedKeys);
+				if (cs != null || statementCacheSize == 0) return new LeasedPreparedStatement(ps, new Lease(pc, null)); // cached instance is busy, e.g. in a nested call
+				cs = new CachedStatement(ps);
+				pc.statementCache.put(key, cs);
+			}
+			cs.inUse = true;
+			return new LeasedPreparedStatement(cs.statement, new Lease(pc, cs));
+		} catch (SQLException e) {
+			release(pc);
+			throw e;
+		}
+	}
+
+	/**
+	 * prepares a statement for reading a large result row by row. The statement gets a connection of its own instead of the one leased to the current thread,
+	 * as some drivers (e.g. Connector/J) do not allow other statements on a connection, while a result is streamed from it. Thus it does not see uncommitted changes of the thread's transaction.
+	 * Closing the statement hands the connection back to the pool. The statement is not cached.
+	 *
+	 * @param sql the statement template
+	 * @param fetchSize the fetch size given to the driver
+	 * @return the prepared statement
+	 * @throws SQLException if no connection can be obtained or the statement can not be prepared
+	 */
+	PreparedStatement prepareStreamingStatement(String sql, int fetchSize) throws SQLException {
+		PooledConnection pc = borrow();
+		lock.lock();
+		try {
+			lease(pc);
+		} finally {
+			lock.unlock();
+		}
+		try {
+			statementPrepares.incrementAndGet();
+			PreparedStatement ps = pc.connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(fetchSize);
+			return new LeasedPreparedStatement(ps, new Lease(pc, null));
+		} catch (SQLException e) {
+			release(pc);
+			throw e;
+		}
+	}
+
+	/**
+	 * starts a transaction on the connection leased to the current thread. The connection stays leased to the thread until the transaction ends.
+	 * If the thread is already within a transaction, the nested transaction joins it.
+	 *
+	 * @throws SQLException if no connection can be obtained or autocommit can not be disabled
+	 */
+	void begin() throws SQLException {
+		PooledConnection pc = acquire();
+		if (pc.transactionDepth == 0) try {
+			pc.connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			release(pc);
+			throw e;
+		}
+		pc.transactionDepth++;
+	}
+
+	/**
+	 * ends the current thread's transaction by committing it. For nested transactions, only the outermost one commits.
+	 *
+	 * @throws SQLException if the commit fails. The transaction has been ended nevertheless.
+	 */
+	void commit() throws SQLException {
+		end(true);
+	}
+
+	/**
+	 * ends the current thread's transaction by rolling it back. For nested transactions, only the outermost one rolls back.
+	 *
+	 * @throws SQLException if the rollback fails. The connection is discarded in that case.
+	 */
+	void rollback() throws SQLException {
+		end(false);
+	}
+
+	private void end(boolean commit) throws SQLException {
+		PooledConnection pc = lease.get();
+		if (pc == null || pc.transactionDepth == 0) throw new SQLException("There is no transaction in progress.");
+		try {
+			if (--pc.transactionDepth > 0) return;
+			if (commit) {
+				pc.connection.commit();
+			} else pc.connection.rollback();
+			pc.connection.setAutoCommit(true);
+		} catch (SQLException e) {
+			pc.broken = true; // state of the connection is unknown
+			throw e;
+		} finally {
+			release(pc);
+		}
+	}
+
+	/**
+	 * closes the connection leased to the current thread, e.g. after a communication failure. The next request of this thread will get a fresh connection.
+	 */
+	void invalidate() {
+		PooledConnection pc = lease.get();
+		lease.remove();
+		if (pc == null) return;
+		lock.lock();
+		try {
+			if (pc.owner != Thread.currentThread() || pc.discarded) return;
+			discard(pc);
+			leased.remove(pc);
+		} finally {
+			lock.unlock();
+		}
+		closeQuietly(pc.connection);
+	}
+
+	/**
+	 * closes all connections and stops the background eviction. Connections still leased are closed upon their release.
+	 */
+	public void close() {
+		Vector<PooledConnection> obsolete = new Vector<PooledConnection>();
+		lock.lock();
+		try {
+			closed = true;
+			evictor.cancel();
+			while (!idle.isEmpty()) {
+				PooledConnection pc = idle.removeFirst();
+				discard(pc);
+				obsolete.add(pc);
+			}
+			connectionReleased.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		for (PooledConnection pc : obsolete) closeQuietly(pc.connection);
+	}
+
+	private PooledConnection acquire() throws SQLException {
+		PooledConnection pc = lease.get();
+		if (pc != null) {
+			lock.lock();
+			try {
+				if (pc.owner == Thread.currentThread() && !pc.discarded) {
+					pc.references++;
+					return pc;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		pc = borrow();
+		lock.lock();
+		try {
+			lease(pc);
+		} finally {
+			lock.unlock();
+		}
+		lease.set(pc);
+		return pc;
+	}
+
+	/**
+	 * leases the connection to the current thread. must be called while holding the lock
+	 */
+	private void lease(PooledConnection pc) {
+		pc.owner = Thread.currentThread();
+		pc.references = 1;
+		pc.leasedSince = System.nanoTime();
+		pc.leakReported = false;
+		leased.add(pc);
+	}
+
+	private void release(PooledConnection pc) {
+		boolean close = false;
+		lock.lock();
+		try {
+			if (--pc.references > 0 || pc.discarded) return;
+			pc.owner = null;
+			pc.lastUse = System.nanoTime();
+			leased.remove(pc);
+			if (closed || pc.broken) {
+				discard(pc);
+				close = true;
+			} else idle.addFirst(pc);
+			connectionReleased.signal();
+		} finally {
+			lock.unlock();
+		}
+		if (close) closeQuietly(pc.connection);
+	}
+
+	/**
+	 * takes a connection from the idle list or opens a new one, waiting for at most borrowTimeout milliseconds
+	 *
+	 * @return a validated connection
+	 * @throws SQLException with SQLState HYT00, if no connection becomes available in time
+	 */
+	private PooledConnection borrow() throws SQLException {
+		long start = System.nanoTime();
+		boolean waited = false;
+		lock.lock();
+		try {
+			borrowCount++;
+		} finally {
+			lock.unlock();
+		}
+		while (true) {
+			PooledConnection candidate = null;
+			lock.lock();
+			try {
+				while (true) {
+					if (closed) throw new SQLException("The connection pool has been closed.");
+					if (!idle.isEmpty()) {
+						candidate = idle.removeFirst();
+						break;
+					}
+					if (size < maxSize) {
+						size++; // reserve slot for a new connection
+						break;
+					}
+					long remaining = borrowTimeout - millisSince(start);
+					if (remaining <= 0) {
+						timeoutCount++;
+						throw new SQLException("Timed out after " + borrowTimeout + " ms waiting for one of " + maxSize + " database connections.", "HYT00"); // not a connection failure (08), so the retry policy does not wait again
+					}
+					waited = true;
+					try {
+						connectionReleased.await(remaining, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a database connection.");
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (candidate == null) candidate = open();
+			else if (needsValidation(candidate, System.nanoTime()) && !isValid(candidate)) {
+				destroy(candidate);
+				continue;
+			}
+			if (waited) recordWait(millisSince(start));
+			return candidate;
+		}
+	}
+
+	/**
+	 * opens a new connection for a slot already reserved in size
+	 */
+	private PooledConnection open() throws SQLException {
+		boolean success = false;
+		try {
+			PooledConnection pc = new PooledConnection(factory.connect());
+			success = true;
+			lock.lock();
+			try {
+				createdCount++;
+			} finally {
+				lock.unlock();
+			}
+			return pc;
+		} finally {
+			if (!success) {
+				lock.lock();
+				try {
+					size--;
+					connectionReleased.signal();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	private static long millisSince(long nanoTime) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanoTime);
+	}
+
+	/**
+	 * @return true, if the connection has neither been used nor validated within the last validationInterval milliseconds
+	 */
+	private boolean needsValidation(PooledConnection pc, long now) {
+		return TimeUnit.NANOSECONDS.toMillis(now - Math.max(pc.lastUse, pc.lastValidation)) >= validationInterval;
+	}
+
+	/**
+	 * checks, whether the connection is still alive. Uses Connection.isValid, if the driver supports it, the validation query otherwise.
+	 */
+	private boolean isValid(PooledConnection pc) {
+		try {
+			if (pc.connection.isClosed()) return false;
+			boolean valid;
+			if (driverValidation) {
+				try {
+					valid = pc.connection.isValid(VALIDATION_TIMEOUT);
+				} catch (AbstractMethodError e) { // JDBC 3 driver
+					driverValidation = false;
+					valid = queryValidation(pc);
+				}
+			} else valid = queryValidation(pc);
+			if (valid) {
+				pc.lastValidation = System.nanoTime();
+				return true;
+			}
+			throw new SQLException("connection is not valid");
+		} catch (SQLException e) {
+			lock.lock();
+			try {
+				validationFailures++;
+			} finally {
+				lock.unlock();
+			}
+			Tools.indent("discarding broken database connection: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private boolean queryValidation(PooledConnection pc) throws SQLException {
+		Statement st = pc.connection.createStatement();
+		try {
+			st.setQueryTimeout(VALIDATION_TIMEOUT);
+			st.executeQuery(validationQuery).close();
+		} finally {
+			st.close();
+		}
+		return true;
+	}
+
+	private void destroy(PooledConnection pc) {
+		lock.lock();
+		try {
+			discard(pc);
+		} finally {
+			lock.unlock();
+		}
+		closeQuietly(pc.connection);
+	}
+
+	/**
+	 * removes a connection from the pool's accounting. must be called while holding the lock
+	 */
+	private void discard(PooledConnection pc) {
+		pc.discarded = true;
+		pc.owner = null;
+		size--;
+		destroyedCount++;
+		connectionReleased.signal();
+	}
+
+	private void recordWait(long millis) {
+		lock.lock();
+		try {
+			waitCount++;
+			totalWaitMillis += millis;
+			if (millis > maxWaitMillis) maxWaitMillis = millis;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * closes connections idle for too long, reclaims connections leased to threads that have terminated, reports connections leased for too long,
+	 * revalidates idle connections and refills the pool to its minimum size
+	 */
+	private void evict() {
+		Vector<PooledConnection> obsolete = new Vector<PooledConnection>();
+		Vector<String> leaks = new Vector<String>();
+		Vector<PooledConnection> unvalidated = new Vector<PooledConnection>();
+		int missing;
+		lock.lock();
+		try {
+			if (closed) return;
+			long now = System.nanoTime();
+			for (Iterator<PooledConnection> it = idle.iterator(); it.hasNext();) {
+				PooledConnection pc = it.next();
+				if (size > minSize && TimeUnit.NANOSECONDS.toMillis(now - pc.lastUse) > idleTimeout) {
+					it.remove();
+					discard(pc);
+					obsolete.add(pc);
+				} else if (needsValidation(pc, now)) {
+					it.remove(); // taken out of the idle list, so that no thread borrows it while it is validated
+					unvalidated.add(pc);
+				}
+			}
+			for (Iterator<PooledConnection> it = leased.iterator(); it.hasNext();) {
+				PooledConnection pc = it.next();
+				if (pc.owner != null && !pc.owner.isAlive()) {
+					it.remove();
+					discard(pc);
+					abandonedCount++;
+					obsolete.add(pc);
+				} else if (pc.owner != null && leakWarningTime > 0 && !pc.leakReported && TimeUnit.NANOSECONDS.toMillis(now - pc.leasedSince) > leakWarningTime) {
+					pc.leakReported = true;
+					leakCount++;
+					leaks.add(leakReport(pc, now));
+				}
+			}
+			missing = minSize - size;
+			if (missing > 0) size += missing;
+		} finally {
+			lock.unlock();
+		}
+		for (PooledConnection pc : obsolete) closeQuietly(pc.connection);
+		for (String leak : leaks) Tools.warn(leak);
+		for (PooledConnection pc : unvalidated) {
+			if (!isValid(pc)) {
+				destroy(pc);
+				continue;
+			}
+			boolean close = false;
+			lock.lock();
+			try {
+				if (closed) {
+					discard(pc);
+					close = true;
+				} else {
+					idle.addLast(pc);
+					connectionReleased.signal();
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (close) closeQuietly(pc.connection);
+		}
+		for (int i = 0; i < missing; i++) {
+			try {
+				PooledConnection pc = open();
+				lock.lock();
+				try {
+					idle.addLast(pc);
+					connectionReleased.signal();
+				} finally {
+					lock.unlock();
+				}
+			} catch (SQLException e) {
+				Tools.indent("unable to open database connection: " + e.getMessage());
+				for (int j = i + 1; j < missing; j++) {
+					lock.lock();
+					try {
+						size--;
+					} finally {
+						lock.unlock();
+					}
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return a description of the connection's lease, including where its owner is currently running
+	 */
+	private static String leakReport(PooledConnection pc, long now) {
+		StringBuffer report = new StringBuffer("database connection leased to thread '" + pc.owner.getName() + "' for " + TimeUnit.NANOSECONDS.toSeconds(now - pc.leasedSince) + " s (" + pc.references + " open statements, transaction depth " + pc.transactionDepth + "). It may have been leaked by a statement, which has not been closed. The thread is at:");
+		StackTraceElement[] trace = pc.owner.getStackTrace();
+		for (int i = 0; i < Math.min(trace.length, 10); i++) report.append("\n\tat " + trace[i]);
+		return report.toString();
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {}
+	}
+
+	private static void closeQuietly(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {}
+	}
+
+	/**
+	 * @return the number of open connections
+	 */
+	public int getSize() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of open connections currently not leased to any thread
+	 */
+	public int getIdleCount() {
+		lock.lock();
+		try {
+			return idle.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of connections currently leased to threads
+	 */
+	public int getLeasedCount() {
+		lock.lock();
+		try {
+			return leased.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of connections handed out by the pool
+	 */
+	public long getBorrowCount() {
+		lock.lock();
+		try {
+			return borrowCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of borrow requests, that had to wait for a connection to be released
+	 */
+	public long getWaitCount() {
+		lock.lock();
+		try {
+			return waitCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of borrow requests, that failed because no connection became available in time
+	 */
+	public long getTimeoutCount() {
+		lock.lock();
+		try {
+			return timeoutCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the average waiting time in milliseconds of those borrow requests, which had to wait
+	 */
+	public double getAverageWaitMillis() {
+		lock.lock();
+		try {
+			return (waitCount == 0) ? 0 : ((double) totalWaitMillis) / waitCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the longest time in milliseconds a borrow request had to wait
+	 */
+	public long getMaxWaitMillis() {
+		lock.lock();
+		try {
+			return maxWaitMillis;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of connections opened by the pool
+	 */
+	public long getCreatedCount() {
+		lock.lock();
+		try {
+			return createdCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of connections closed by the pool
+	 */
+	public long getDestroyedCount() {
+		lock.lock();
+		try {
+			return destroyedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of idle connections found to be broken, either by the background validation or when they were about to be handed out
+	 */
+	public long getValidationFailures() {
+		lock.lock();
+		try {
+			return validationFailures;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of connections reclaimed from threads that terminated without releasing them
+	 */
+	public long getAbandonedCount() {
+		lock.lock();
+		try {
+			return abandonedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of connections reported as possibly leaked, as they were leased to a thread for longer than leakWarningTime
+	 */
+	public long getLeakCount() {
+		lock.lock();
+		try {
+			return leakCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of prepared statements served from a connection's statement cache
+	 */
+	public long getStatementCacheHits() {
+		return statementCacheHits.get();
+	}
+
+	/**
+	 * @return the number of statements, that had to be prepared, because they were not in the statement cache
+	 */
+	public long getStatementPrepares() {
+		return statementPrepares.get();
+	}
+
+	public String toString() {
+		lock.lock();
+		try {
+			return "ConnectionPool(size: " + size + "/" + maxSize + ", idle: " + idle.size() + ", leased: " + leased.size() + ", borrows: " + borrowCount + ", waits: " + waitCount + ", timeouts: " + timeoutCount + ", max wait: " + maxWaitMillis + " ms, created: " + createdCount + ", destroyed: " + destroyedCount + ", validation failures: " + validationFailures + ", abandoned: " + abandonedCount + ", leaks: " + leakCount + ", statement cache hits: " + statementCacheHits.get() + ", prepares: " + statementPrepares.get() + ")";
+		} finally {
+			lock.unlock();
+		}
+	}
+}
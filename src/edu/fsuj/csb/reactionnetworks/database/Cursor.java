@@ -0,0 +1,102 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * iterates over the result of a query, which is read from the database row by row, so large results do not have to fit into memory.
+ *
+ * The cursor holds a database connection of its own until it is closed, which happens automatically, when the last row has been read.
+ * Cursors left before their end have to be closed explicitly, preferably in a finally block.
+ * As Iterator methods can not throw SQLExceptions, failures while reading are thrown as IllegalStateException with the SQLException as cause.
+ *
+ * @param <T> the type of the elements, converted from the rows by a Mapper
+ */
+public class Cursor<T> implements Iterator<T>, Closeable {
+
+	/**
+	 * converts the current row of a result to an element of the cursor
+	 */
+	public interface Mapper<T> {
+		public T map(ResultSet rs) throws SQLException;
+	}
+
+	private final PreparedStatement statement;
+	private final ResultSet result;
+	private final Mapper<T> mapper;
+	private boolean fetched = false; // true, if the next row has been read but not returned yet
+	private boolean closed = false;
+	private int rows = 0;
+
+	/**
+	 * runs the query of the statement
+	 *
+	 * @param statement the prepared statement, which is closed with the cursor
+	 * @param mapper converts the rows
+	 * @throws SQLException if the query fails
+	 */
+	Cursor(PreparedStatement statement, Mapper<T> mapper) throws SQLException {
+		this.statement = statement;
+		this.mapper = mapper;
+		result = statement.executeQuery();
+	}
+
+	public boolean hasNext() {
+		if (closed) return false;
+		if (fetched) return true;
+		try {
+			fetched = result.next();
+			if (!fetched) close();
+			return fetched;
+		} catch (SQLException e) {
+			close();
+			throw new IllegalStateException("reading row " + (rows + 1) + " failed: " + e.getMessage(), e);
+		}
+	}
+
+	public T next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		fetched = false;
+		rows++;
+		try {
+			return mapper.map(result);
+		} catch (SQLException e) {
+			close();
+			throw new IllegalStateException("reading row " + rows + " failed: " + e.getMessage(), e);
+		}
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException("cursors are read only");
+	}
+
+	/**
+	 * closes the result and hands the connection back to the pool. Further calls have no effect.
+	 */
+	public void close() {
+		if (closed) return;
+		closed = true;
+		try {
+			result.close();
+		} catch (SQLException e) {} finally {
+			try {
+				statement.close();
+			} catch (SQLException e) {}
+		}
+	}
+
+	/**
+	 * @return the number of rows returned so far
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+	public String toString() {
+		return "Cursor(" + rows + " rows" + (closed ? ", closed" : "") + ")";
+	}
+}
@@ -0,0 +1,258 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.sql.SQLException;
+
+/**
+ * encapsulates the parts of SQL and of the connection setup, which differ between the supported database systems.
+ * The dialect is chosen by the key "dialect" of the InteractionDB configuration.
+ */
+public abstract class Dialect {
+
+	/**
+	 * returns the dialect registered for the given name
+	 *
+	 * @param name either "mysql" or "h2"
+	 * @return the dialect
+	 * @throws IllegalArgumentException if there is no dialect with that name
+	 */
+	public static Dialect forName(String name) {
+		if (name == null || name.equalsIgnoreCase("mysql")) return new MySqlDialect();
+		if (name.equalsIgnoreCase("h2")) return new H2Dialect();
+		throw new IllegalArgumentException("unknown database dialect: " + name);
+	}
+
+	/**
+	 * @return the class name of the jdbc driver
+	 */
+	public abstract String driver();
+
+	/**
+	 * @return true, if the database runs inside this process and stores its data in a local file
+	 */
+	public abstract boolean embedded();
+
+	/**
+	 * builds the jdbc url
+	 *
+	 * @param location host (and port) of the database server, or the path of the database file for embedded databases
+	 * @param database the name of the database
+	 * @param options additional driver options, may be empty
+	 * @return the jdbc url
+	 */
+	public abstract String url(String location, String database, String options);
+
+	/**
+	 * @return the driver options used, if none are configured
+	 */
+	public abstract String defaultOptions();
+
+	/**
+	 * @param database the name of the database
+	 * @return a statement to be executed on each new connection, or null
+	 */
+	public String initStatement(String database) {
+		return null;
+	}
+
+	/**
+	 * @param column the name of the key column
+	 * @return the definition of an integer primary key column, whose values are generated by the database
+	 */
+	public String autoIncrementKey(String column) {
+		return column + " INT NOT NULL AUTO_INCREMENT PRIMARY KEY";
+	}
+
+	/**
+	 * @param table the table
+	 * @param column its auto increment key column
+	 * @param next the next value to be generated
+	 * @return a statement making the key generator continue after explicitly inserted keys, or null, if the database does this on its own
+	 */
+	public String restartKey(String table, String column, int next) {
+		return null;
+	}
+
+	/**
+	 * @return the type used for strings of arbitrary length, which are compared in WHERE clauses
+	 */
+	public abstract String textType();
+
+	/**
+	 * @param charset the character set of the table
+	 * @return the options appended to a CREATE TABLE statement
+	 */
+	public abstract String tableOptions(String charset);
+
+	/**
+	 * builds a statement creating an index. Executing it when the index exists either does nothing or fails with an exception recognized by alreadyExists.
+	 *
+	 * @param name the name of the index
+	 * @param table the table
+	 * @param columns the comma separated list of indexed columns, built with indexColumn for text columns
+	 * @return the statement
+	 */
+	public String createIndex(String name, String table, String columns) {
+		return "CREATE INDEX " + name + " ON " + table + " (" + columns + ")";
+	}
+
+	/**
+	 * @param column a text column
+	 * @param prefixLength the number of leading characters to be indexed, if the database can not index whole text columns
+	 * @return the column as part of an index definition
+	 */
+	public String indexColumn(String column, int prefixLength) {
+		return column;
+	}
+
+	/**
+	 * @return a query listing the names of the tables of the database, which do not support transactions, or null, if all tables do
+	 */
+	public String nonTransactionalTables() {
+		return null;
+	}
+
+	/**
+	 * @param table a table listed by nonTransactionalTables()
+	 * @return the statement converting the table, so that it supports transactions, or null, if the table can not be converted
+	 */
+	public String makeTransactional(String table) {
+		return null;
+	}
+
+	/**
+	 * @return the fetch size for reading large results row by row, instead of buffering them in the client
+	 */
+	public int streamingFetchSize() {
+		return 1000;
+	}
+
+	/**
+	 * @param e the exception raised by a statement creating a table, column or index
+	 * @return true, if the exception signals, that the table, column or index already exists
+	 */
+	public abstract boolean alreadyExists(SQLException e);
+
+	/**
+	 * builds an insert statement, which silently skips rows violating a primary key or unique constraint
+	 *
+	 * @param table the table to insert into
+	 * @param columns the comma separated list of columns, which form the primary key of the table
+	 * @param rows the number of rows inserted by the statement
+	 * @return the statement, containing a ? for each column of each row
+	 */
+	public String insertIgnore(String table, String columns, int rows) {
+		return insertIgnore(table, columns, count(columns), rows);
+	}
+
+	/**
+	 * builds an insert statement, which skips rows violating the primary key
+	 *
+	 * @param table the table to insert into
+	 * @param columns the comma separated list of columns, beginning with the primary key columns
+	 * @param keyColumns the number of primary key columns
+	 * @param rows the number of rows inserted by the statement
+	 * @return the statement, containing a ? for each column of each row
+	 */
+	public abstract String insertIgnore(String table, String columns, int keyColumns, int rows);
+
+	/**
+	 * builds a statement inserting the rows returned by a query, skipping rows violating the primary key
+	 *
+	 * @param table the table to insert into
+	 * @param columns the comma separated list of columns, beginning with the primary key columns
+	 * @param keyColumns the number of primary key columns
+	 * @param select the query, returning a value for each column
+	 * @return the statement
+	 */
+	public abstract String insertIgnoreSelect(String table, String columns, int keyColumns, String select);
+
+	/**
+	 * builds a statement, which loads a tab separated file into a table using the bulk loader of the database.
+	 * NULL values are written as \N, booleans as 1 or 0.
+	 *
+	 * @param table the table to load into
+	 * @param columns the comma separated list of columns in the order of the file
+	 * @param file the absolute path of the file, which is read by the client
+	 * @param replace if true, rows replace existing rows with the same primary key, otherwise such rows are skipped
+	 * @return the statement or null, if the database has no bulk loader
+	 */
+	public String bulkLoad(String table, String columns, String file, boolean replace) {
+		return null;
+	}
+
+	/**
+	 * builds a statement, which inserts a row or updates the existing row with the same key
+	 *
+	 * @param table the table to insert into
+	 * @param columns the comma separated list of columns, beginning with the key columns
+	 * @param keyColumns the number of key columns
+	 * @return the statement, containing a ? for each column
+	 */
+	public String upsert(String table, String columns, int keyColumns) {
+		return upsert(table, columns, keyColumns, 1);
+	}
+
+	/**
+	 * builds a statement, which inserts several rows, each of which updates the existing row with the same key
+	 *
+	 * @param table the table to insert into
+	 * @param columns the comma separated list of columns, beginning with the key columns
+	 * @param keyColumns the number of key columns
+	 * @param rows the number of rows inserted by the statement
+	 * @return the statement, containing a ? for each column of each row
+	 */
+	public abstract String upsert(String table, String columns, int keyColumns, int rows);
+
+	/**
+	 * @return a query returning the last key generated on the current connection, used if the driver does not return generated keys, or null, if the driver always returns them
+	 */
+	public abstract String lastInsertId();
+
+	/**
+	 * builds a statement deleting those rows of a table, which match a condition over a join of several tables
+	 *
+	 * @param table the table to delete from
+	 * @param keyColumns the comma separated primary key columns of the table
+	 * @param join the joined tables, containing the target table
+	 * @param condition the condition, may contain ? placeholders
+	 * @return the delete statement
+	 */
+	public abstract String deleteJoined(String table, String keyColumns, String join, String condition);
+
+	/**
+	 * builds a statement updating the rows of a table, which have a matching row in another table
+	 *
+	 * @param target the updated table with alias, e.g. "substrates k"
+	 * @param source the joined table with alias
+	 * @param condition the join condition, may contain ? placeholders
+	 * @param assignments the comma separated assignments to columns of the target, qualified by its alias
+	 * @return the update statement
+	 */
+	public abstract String updateJoined(String target, String source, String condition, String assignments);
+
+	/**
+	 * @return a list of rows placeholders for multi-row inserts, e.g. "(?, ?), (?, ?)"
+	 */
+	protected static String rows(int columns, int rows) {
+		StringBuffer row = new StringBuffer("(");
+		for (int i = 0; i < columns; i++) {
+			if (i > 0) row.append(", ");
+			row.append('?');
+		}
+		row.append(')');
+		StringBuffer result = new StringBuffer();
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) result.append(", ");
+			result.append(row);
+		}
+		return result.toString();
+	}
+
+	protected static int count(String columns) {
+		return columns.split(",").length;
+	}
+
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,129 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.sql.SQLException;
+
+/**
+ * dialect for the embedded H2 database. The database is stored in a local file, so imports need no network round trips.
+ * The H2 driver (h2.jar) has to be on the class path.
+ */
+public class H2Dialect extends Dialect {
+
+	private static final int TABLE_OR_VIEW_ALREADY_EXISTS = 42101;
+	private static final int INDEX_ALREADY_EXISTS = 42111;
+	private static final int DUPLICATE_COLUMN_NAME = 42121;
+
+	public String driver() {
+		return "org.h2.Driver";
+	}
+
+	public boolean embedded() {
+		return true;
+	}
+
+	public String url(String location, String database, String options) {
+		return "jdbc:h2:" + location + (options.length() > 0 ? ";" + options : "");
+	}
+
+	/**
+	 * GROUPS and VALUE are keywords in H2, but used as column names by InteractionDB
+	 */
+	public String defaultOptions() {
+		return "NON_KEYWORDS=GROUPS,VALUE;CACHE_SIZE=131072";
+	}
+
+	public String restartKey(String table, String column, int next) {
+		return "ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + next;
+	}
+
+	public String textType() {
+		return "VARCHAR";
+	}
+
+	public String tableOptions(String charset) {
+		return "";
+	}
+
+	public String createIndex(String name, String table, String columns) {
+		return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")";
+	}
+
+	public boolean alreadyExists(SQLException e) {
+		int code = e.getErrorCode();
+		return code == TABLE_OR_VIEW_ALREADY_EXISTS || code == INDEX_ALREADY_EXISTS || code == DUPLICATE_COLUMN_NAME;
+	}
+
+	/**
+	 * H2 has no INSERT IGNORE outside of its MySQL compatibility mode, so the rows are merged from a VALUES table, inserting only those with new keys.
+	 */
+	public String insertIgnore(String table, String columns, int keyColumns, int rows) {
+		return insertIgnoreSelect(table, columns, keyColumns, "VALUES " + rows(count(columns), rows));
+	}
+
+	/**
+	 * merges the rows without updating matched ones, so only rows with new keys are inserted and counted. As a MERGE fails on source rows
+	 * sharing a key, the source is grouped by the key columns first, taking the least value of each other column.
+	 */
+	public String insertIgnoreSelect(String table, String columns, int keyColumns, String select) {
+		String[] names = columns.split(",");
+		StringBuffer source = new StringBuffer();
+		StringBuffer keys = new StringBuffer();
+		StringBuffer condition = new StringBuffer();
+		StringBuffer values = new StringBuffer();
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i].trim();
+			if (i > 0) {
+				source.append(", ");
+				values.append(", ");
+			}
+			if (i < keyColumns) {
+				source.append("v." + name);
+				if (i > 0) {
+					keys.append(", ");
+					condition.append(" AND ");
+				}
+				keys.append("v." + name);
+				condition.append(table + "." + name + "=s." + name);
+			} else source.append("MIN(v." + name + ") AS " + name);
+			values.append("s." + name);
+		}
+		return "MERGE INTO " + table + " USING (SELECT " + source + " FROM (" + select + ") AS v(" + columns + ") GROUP BY " + keys + ") AS s ON (" + condition + ") WHEN NOT MATCHED THEN INSERT (" + columns + ") VALUES (" + values + ")";
+	}
+
+	private static String keys(String columns, int keyColumns) {
+		String[] names = columns.split(",");
+		StringBuffer keys = new StringBuffer();
+		for (int i = 0; i < keyColumns; i++) {
+			if (i > 0) keys.append(", ");
+			keys.append(names[i].trim());
+		}
+		return keys.toString();
+	}
+
+	public String upsert(String table, String columns, int keyColumns, int rows) {
+		return "MERGE INTO " + table + " (" + columns + ") KEY (" + keys(columns, keyColumns) + ") VALUES " + rows(count(columns), rows);
+	}
+
+	/**
+	 * NON_KEYWORDS requires H2 2.x, where IDENTITY() only exists in legacy mode, but H2 always returns generated keys
+	 */
+	public String lastInsertId() {
+		return null;
+	}
+
+	/**
+	 * H2 has no multi-table UPDATE, but a MERGE with a source table, which only updates matched rows, does the same
+	 */
+	public String updateJoined(String target, String source, String condition, String assignments) {
+		return "MERGE INTO " + target + " USING " + source + " ON (" + condition + ") WHEN MATCHED THEN UPDATE SET " + assignments;
+	}
+
+	public String deleteJoined(String table, String keyColumns, String join, String condition) {
+		String[] keys = keyColumns.split(",");
+		StringBuffer qualified = new StringBuffer();
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) qualified.append(", ");
+			qualified.append(table + "." + keys[i].trim());
+		}
+		return "DELETE FROM " + table + " WHERE (" + keyColumns + ") IN (SELECT " + qualified + " FROM " + join + " WHERE " + condition + ")";
+	}
+}
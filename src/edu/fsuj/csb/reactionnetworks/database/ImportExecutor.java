@@ -0,0 +1,168 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * runs import tasks, e.g. parsing of kegg entries, concurrently.
+ *
+ * If the Java runtime supports virtual threads (Java 21 or newer), every task runs on a virtual thread of its own, so thousands of tasks waiting for web pages or database connections are cheap.
+ * On older runtimes, daemon platform threads are used.
+ * The number of tasks running at the same time is limited by the concurrency given to the constructor; submit blocks, while this limit is reached.
+ * Database access of the tasks is limited by the size of the connection pool, tasks wait for a connection without blocking a carrier thread.
+ */
+public class ImportExecutor {
+
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final int concurrency;
+	private final boolean virtual;
+
+	/**
+	 * creates an executor, configured by the keys importConcurrency (default: 256) and importVirtualThreads (default: 1, use 0 to force platform threads)
+	 *
+	 * @throws IOException if config file can not be read
+	 */
+	public ImportExecutor() throws IOException {
+		this(InteractionDB.getConfigValue("importConcurrency", 256), InteractionDB.getConfigValue("importVirtualThreads", 1) != 0);
+	}
+
+	/**
+	 * creates an executor
+	 *
+	 * @param concurrency the maximum number of tasks running at the same time
+	 * @param preferVirtualThreads if true, virtual threads are used, provided the runtime supports them
+	 */
+	public ImportExecutor(int concurrency, boolean preferVirtualThreads) {
+		this.concurrency = Math.max(1, concurrency);
+		permits = new Semaphore(this.concurrency);
+		ThreadFactory factory = preferVirtualThreads ? virtualThreadFactory() : null;
+		virtual = factory != null;
+		if (factory == null) factory = new ThreadFactory() {
+			private final AtomicInteger number = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "InteractionDB import " + number.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		executor = Executors.newCachedThreadPool(factory);
+	}
+
+	/**
+	 * looks up Thread.ofVirtual().factory() by reflection, as this code has to run on older runtimes as well
+	 *
+	 * @return a factory for virtual threads or null, if the runtime does not support them
+	 */
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (Exception e) {
+			Tools.indent("virtual threads not available, using platform threads for import");
+			return null;
+		}
+	}
+
+	/**
+	 * submits a task, waiting while the maximum number of tasks is running
+	 *
+	 * @param task the task
+	 * @return the future result of the task
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public <T> Future<T> submit(final Callable<T> task) throws InterruptedException {
+		permits.acquire();
+		try {
+			return executor.submit(new Callable<T>() {
+				public T call() throws Exception {
+					try {
+						return task.call();
+					} finally {
+						permits.release();
+					}
+				}
+			});
+		} catch (RuntimeException e) { // rejected
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * runs all tasks and waits for their results
+	 *
+	 * @param tasks the tasks
+	 * @return the results in the order of the tasks
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws ExecutionException if one of the tasks failed. The other tasks are completed nevertheless.
+	 */
+	public <T> Vector<T> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+		Vector<Future<T>> futures = new Vector<Future<T>>(tasks.size());
+		for (Callable<T> task : tasks) futures.add(submit(task));
+		Vector<T> result = new Vector<T>(futures.size());
+		ExecutionException failure = null;
+		for (Future<T> future : futures) {
+			try {
+				result.add(future.get());
+			} catch (ExecutionException e) {
+				if (failure == null) failure = e;
+				result.add(null);
+			}
+		}
+		if (failure != null) throw failure;
+		return result;
+	}
+
+	/**
+	 * @return true, if the tasks run on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtual;
+	}
+
+	/**
+	 * @return the maximum number of tasks running at the same time
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * @return the number of tasks currently running
+	 */
+	public int getActiveCount() {
+		return concurrency - permits.availablePermits();
+	}
+
+	/**
+	 * stops accepting tasks and waits for the submitted tasks to finish
+	 *
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return true, if all tasks finished
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean shutdown(long timeout) throws InterruptedException {
+		executor.shutdown();
+		return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	public String toString() {
+		return "ImportExecutor(" + (virtual ? "virtual" : "platform") + " threads, active: " + getActiveCount() + "/" + concurrency + ")";
+	}
+}
@@ -0,0 +1,15 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+/**
+ * iterates over int values without boxing them
+ */
+public interface IntIterator {
+
+	public boolean hasNext();
+
+	/**
+	 * @return the next value
+	 * @throws java.util.NoSuchElementException if there are no more values
+	 */
+	public int next();
+}
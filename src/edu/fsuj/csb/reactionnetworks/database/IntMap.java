@@ -0,0 +1,145 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * an immutable map from ints to ints, stored as sorted array of keys and array of values, e.g. the stoichiometric coefficients of a reaction by substance id.
+ * The entries can be iterated without boxing by index (keyAt, valueAt) or by keys().intIterator().
+ */
+public class IntMap {
+
+	public static final IntMap EMPTY = new IntMap(new int[0], new int[0]);
+
+	/**
+	 * collects the entries of a map in any order. If a key is put more than once, the last value is kept.
+	 */
+	public static class Builder {
+		private int[] keys = new int[16];
+		private int[] values = new int[16];
+		private int size = 0;
+
+		public Builder put(int key, int value) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, 2 * size);
+				values = Arrays.copyOf(values, 2 * size);
+			}
+			keys[size] = key;
+			values[size++] = value;
+			return this;
+		}
+
+		public IntMap build() {
+			if (size == 0) return EMPTY;
+			long[] order = new long[size]; // key in the upper, position in the lower half, so sorting keeps the order of equal keys
+			for (int i = 0; i < size; i++) order[i] = ((long) keys[i] << 32) | i;
+			Arrays.sort(order);
+			int[] sortedKeys = new int[size];
+			int[] sortedValues = new int[size];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				int key = (int) (order[i] >> 32);
+				int value = values[(int) order[i]];
+				if (count > 0 && sortedKeys[count - 1] == key) {
+					sortedValues[count - 1] = value;
+				} else {
+					sortedKeys[count] = key;
+					sortedValues[count++] = value;
+				}
+			}
+			size = 0;
+			return new IntMap(Arrays.copyOf(sortedKeys, count), Arrays.copyOf(sortedValues, count));
+		}
+	}
+
+	private final int[] keys;
+	private final int[] values;
+
+	private IntMap(int[] keys, int[] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	/**
+	 * @param index a position between 0 and size()-1
+	 * @return the index-th smallest key
+	 */
+	public int keyAt(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * @param index a position between 0 and size()-1
+	 * @return the value of the index-th smallest key
+	 */
+	public int valueAt(int index) {
+		return values[index];
+	}
+
+	/**
+	 * @return the position of the key or a negative value, if the map does not contain it
+	 */
+	public int indexOf(int key) {
+		return Arrays.binarySearch(keys, key);
+	}
+
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * @param key a key
+	 * @param defaultValue the value returned, if the map does not contain the key
+	 * @return the value of the key
+	 */
+	public int get(int key, int defaultValue) {
+		int index = indexOf(key);
+		return (index < 0) ? defaultValue : values[index];
+	}
+
+	/**
+	 * @return the keys
+	 */
+	public IntSet keys() {
+		IntSet.Builder builder = new IntSet.Builder();
+		for (int key : keys) builder.add(key);
+		return builder.build();
+	}
+
+	/**
+	 * adds the entries to a map of boxed ints
+	 *
+	 * @return the map passed in
+	 */
+	public <M extends Map<Integer, Integer>> M addTo(M map) {
+		for (int i = 0; i < keys.length; i++) map.put(keys[i], values[i]);
+		return map;
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof IntMap)) return false;
+		IntMap other = (IntMap) o;
+		return Arrays.equals(keys, other.keys) && Arrays.equals(values, other.values);
+	}
+
+	public int hashCode() {
+		return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+	}
+
+	public String toString() {
+		StringBuffer result = new StringBuffer("{");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) result.append(", ");
+			result.append(keys[i]).append('=').append(values[i]);
+		}
+		return result.append('}').toString();
+	}
+}
@@ -0,0 +1,146 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+/**
+ * an immutable set of ints, stored as sorted array. Needs four bytes per element, where a TreeSet<Integer> needs about fifty.
+ * The elements can be iterated without boxing by index (get) or by intIterator().
+ */
+public class IntSet {
+
+	public static final IntSet EMPTY = new IntSet(new int[0], 0);
+
+	/**
+	 * collects the elements of a set in any order and with duplicates
+	 */
+	public static class Builder {
+		private int[] values = new int[16];
+		private int size = 0;
+
+		public Builder add(int value) {
+			if (size == values.length) values = Arrays.copyOf(values, 2 * values.length);
+			values[size++] = value;
+			return this;
+		}
+
+		public IntSet build() {
+			if (size == 0) return EMPTY;
+			Arrays.sort(values, 0, size);
+			int distinct = 0;
+			for (int i = 0; i < size; i++) {
+				if (distinct == 0 || values[distinct - 1] != values[i]) values[distinct++] = values[i];
+			}
+			IntSet result = new IntSet(values, distinct);
+			values = new int[16]; // the array now belongs to the set
+			size = 0;
+			return result;
+		}
+	}
+
+	private final int[] values;
+	private final int size;
+
+	private IntSet(int[] values, int size) {
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * @param values the elements
+	 * @return a set of the values
+	 */
+	public static IntSet of(Collection<Integer> values) {
+		Builder builder = new Builder();
+		for (Integer value : values) {
+			if (value != null) builder.add(value);
+		}
+		return builder.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param index a position between 0 and size()-1
+	 * @return the index-th smallest element
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index + " not in [0, " + size + ")");
+		return values[index];
+	}
+
+	/**
+	 * @return the position of the value or a negative value, if the set does not contain it
+	 */
+	public int indexOf(int value) {
+		return Arrays.binarySearch(values, 0, size, value);
+	}
+
+	public boolean contains(int value) {
+		return indexOf(value) >= 0;
+	}
+
+	/**
+	 * @return a sorted copy of the elements
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	public IntIterator intIterator() {
+		return new IntIterator() {
+			private int index = 0;
+
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			public int next() {
+				if (index >= size) throw new NoSuchElementException();
+				return values[index++];
+			}
+		};
+	}
+
+	/**
+	 * adds the elements to a collection of boxed ints
+	 *
+	 * @return the collection passed in
+	 */
+	public <C extends Collection<Integer>> C addTo(C collection) {
+		for (int i = 0; i < size; i++) collection.add(values[i]);
+		return collection;
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof IntSet)) return false;
+		IntSet other = (IntSet) o;
+		if (other.size != size) return false;
+		for (int i = 0; i < size; i++) {
+			if (values[i] != other.values[i]) return false;
+		}
+		return true;
+	}
+
+	public int hashCode() {
+		int result = 1;
+		for (int i = 0; i < size; i++) result = 31 * result + values[i];
+		return result;
+	}
+
+	public String toString() {
+		StringBuffer result = new StringBuffer("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) result.append(", ");
+			result.append(values[i]);
+		}
+		return result.append(']').toString();
+	}
+}
@@ -1,27 +1,36 @@
 package edu.fsuj.csb.reactionnetworks.database;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.rmi.AlreadyBoundException;
 import java.rmi.UnexpectedException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.Stack;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UnknownFormatConversionException;
 import java.util.Vector;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.DataFormatException;
 
 import javax.naming.NameNotFoundException;
@@ -64,7 +73,6 @@ import edu.fsuj.csb.tools.xml.XmlToken;
  * 
  */
 public class InteractionDB {
-	private static String dbDriver = "com.mysql.jdbc.Driver";
 	/** the following 4 values define defaults for database configuration.
 	 * Do not alter these, instead alter ~/.config/InteractionDB/database.config */
 	private static String defaultDbHost = "localhost";
@@ -74,12 +82,19 @@ public class InteractionDB {
 	
 	private static boolean testMode = false;
 	
-	private static Connection connection = null;
-	private static TreeMap<String, TreeSet<String>> unificationRules;
-	private static TreeMap<URL,Formula> formulaMap=new TreeMap<URL, Formula>(ObjectComparator.get());
-	private static TreeSet<String> unresolvedAbbrevations=Tools.StringSet();
-	private static long lastConnectionAccess=0;
-	private static Configuration configuration;
+	/* lazily created shared objects. They are guarded by initLock instead of synchronized, so that virtual threads calling InteractionDB are never pinned to their carrier. */
+	private static final ReentrantLock initLock = new ReentrantLock();
+	private static volatile ConnectionPool connectionPool = null;
+	private static volatile RetryPolicy retryPolicy = null;
+	private static volatile Dialect dialect = null;
+	private static volatile LruCache<String, Integer> nameCache, urlCache, urnCache;
+	private static volatile LruCache<Integer, String> formulaCache;
+	private static volatile TreeMap<String, TreeSet<String>> unificationRules;
+	private static volatile BulkLoader bulkLoader = null;
+	private static volatile ScrapedFormulaCache scrapedFormulaCache = null;
+	private static volatile boolean deferUnification = false;
+	private static SortedSet<String> unresolvedAbbrevations=Collections.synchronizedSortedSet(Tools.StringSet());
+	private static volatile Configuration configuration;
 	
 	public final static int COMPARTMENT_GROUP = 1;
 	public static final int COMPARTMENT = 2;
@@ -87,6 +102,10 @@ public class InteractionDB {
 	public static final int SUBSTANCE = 4;
 	public static final int ENZYME = 5;
 	public static final int REACTION = 6;
+	/** maximum number of values in the IN lists and multi-row inserts of bulk operations */
+	static final int CHUNK_SIZE = 1000;
+	/** the tables, whose text keys are looked up by a digest column with a unique index */
+	private static final Set<String> DIGEST_TABLES = new TreeSet<String>(Arrays.asList("names", "urls", "urns"));
 	private static final int DEASSIGN = -1;
 	private static final int ASSIGN_TO_NEW = 0;
 	private static final int ASSIGN_TO_OLD = 1;
@@ -120,29 +139,27 @@ public class InteractionDB {
 	}
 
 	/**
-	 * tries to establish a connection to the database
-	 * 
+	 * tries to establish a new connection to the database
+	 *
 	 * @return the connection handle
 	 * @throws SQLException
-	 * @throws IOException 
+	 * @throws IOException
 	 */
 	private static Connection connectDB() throws SQLException, IOException {
-		if (connection!=null) try {
-			Tools.indent("closing outdated Connection");
-			Thread.sleep(2000);
-			connection.close();
-		} catch (SQLException e) {			
-		} catch (InterruptedException e) {}
-		
-		Tools.indent("Connecting to database " + getDBName() + " on " + getDBHost() + "..."); // Ausgabe auf der Konsole
+		Tools.indent("Connecting to database " + getDBName() + " on " + getDBLocation() + "..."); // Ausgabe auf der Konsole
 		try {
-			Class.forName(dbDriver).newInstance(); // Erzeugt eine neue Instanz des Datenbanktreibers
-			Connection result = DriverManager.getConnection("jdbc:mysql://" + getDBHost() + "/", getDBUser(), getDBPassword()); // stellt die Verbindung über den Treiber her
-			result.createStatement().execute("USE " + getDBName());
+			Class.forName(dialect().driver()).newInstance(); // Erzeugt eine neue Instanz des Datenbanktreibers
+			Connection result = DriverManager.getConnection(dialect().url(getDBLocation(), getDBName(), getDBOptions()), getDBUser(), getDBPassword()); // stellt die Verbindung über den Treiber her
+			String init=dialect().initStatement(getDBName());
+			if (init!=null){
+				Statement st=result.createStatement();
+				st.execute(init);
+				st.close();
+			}
 			Tools.indent("ok."); // Ausgabe auf der Konsole
 			return result; // übergibt die geöffnete Verbindung an die aufrufende Methode
 		} catch (Exception e) {
-			throw new SQLException("Unable to connect to database ("+getDBName()+" on "+getDBHost()+")!");
+			throw new SQLException("Unable to connect to database ("+getDBName()+" on "+getDBLocation()+")!", "08001");
 		}
 	}
 
@@ -153,8 +170,14 @@ public class InteractionDB {
 
 
 	private static Configuration configuration() throws IOException {
-		if (configuration==null) configuration=new Configuration("InteractionDB");
-	  return configuration;
+		if (configuration!=null) return configuration;
+		initLock.lock();
+		try {
+			if (configuration==null) configuration=new Configuration("InteractionDB");
+			return configuration;
+		} finally {
+			initLock.unlock();
+		}
   }
 
 	private static String getDBUser() throws IOException {
@@ -170,75 +193,710 @@ public class InteractionDB {
 	private static String getDBName() throws IOException {		
 	  return configuration().get("dbname",defaultDbName);
   }
-	
 
+	/**
+	 * @return the host of the database server or, for embedded databases, the path of the database file (key dbpath, default: ~/.config/InteractionDB/<dbname>)
+	 * @throws IOException
+	 */
+	private static String getDBLocation() throws IOException {
+		if (!dialect().embedded()) return getDBHost();
+		return configuration().get("dbpath",System.getProperty("user.home")+"/.config/InteractionDB/"+getDBName());
+	}
 
+	/**
+	 * @return additional parameters for the jdbc url. By default, those of the dialect are used, e.g. server side prepared statements for MySQL.
+	 * @throws IOException
+	 */
+	private static String getDBOptions() throws IOException {
+		return configuration().get("dboptions",dialect().defaultOptions());
+	}
 
+	/**
+	 * returns the SQL dialect of the configured database system (key dialect: mysql or h2, default: mysql)
+	 *
+	 * @return the dialect
+	 * @throws IOException if config file can not be read
+	 */
+	public static Dialect dialect() throws IOException {
+		if (dialect!=null) return dialect;
+		initLock.lock();
+		try {
+			if (dialect==null) dialect=Dialect.forName(configuration().get("dialect","mysql"));
+			return dialect;
+		} finally {
+			initLock.unlock();
+		}
+	}
 
+	static int getConfigValue(String key, int defaultValue) throws IOException {
+		String value=configuration().get(key,null);
+		if (value==null) return defaultValue;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			Tools.warn("invalid value for "+key+" in InteractionDB configuration: "+value);
+			return defaultValue;
+		}
+	}
 
+	/**
+	 * returns the pool of database connections, creating it on first use.
+	 * The pool is configured by the keys poolMinSize, poolMaxSize, poolBorrowTimeout, poolIdleTimeout, poolValidationQuery, poolValidationInterval, poolLeakWarningTime (times in seconds) and statementCacheSize
+	 *
+	 * @return the connection pool
+	 * @throws IOException if config file can not be read
+	 */
+	public static ConnectionPool connectionPool() throws IOException {
+		if (connectionPool!=null) return connectionPool;
+		initLock.lock();
+		try {
+			if (connectionPool==null){
+				ConnectionPool.ConnectionFactory factory=new ConnectionPool.ConnectionFactory() {
+					public Connection connect() throws SQLException {
+						try {
+							return connectDB();
+						} catch (IOException e) {
+							throw new SQLException(e.getMessage());
+						}
+					}
+				};
+				connectionPool=new ConnectionPool(factory,
+						getConfigValue("poolMinSize", 1),
+						getConfigValue("poolMaxSize", 8),
+						getConfigValue("poolBorrowTimeout", 30)*1000L,
+						getConfigValue("poolIdleTimeout", 3600)*1000L,
+						configuration().get("poolValidationQuery", "SELECT 1"),
+						getConfigValue("poolValidationInterval", 10)*1000L,
+						getConfigValue("statementCacheSize", 250),
+						getConfigValue("poolLeakWarningTime", 600)*1000L);
+			}
+			return connectionPool;
+		} finally {
+			initLock.unlock();
+		}
+	}
 
+	/**
+	 * returns the policy for repeating database operations after transient failures, creating it on first use.
+	 * The policy is configured by the keys retryAttempts, retryDelay and retryMaxDelay (times in milliseconds)
+	 *
+	 * @return the retry policy
+	 * @throws IOException if config file can not be read
+	 */
+	public static RetryPolicy retryPolicy() throws IOException {
+		if (retryPolicy!=null) return retryPolicy;
+		initLock.lock();
+		try {
+			if (retryPolicy==null) retryPolicy=new RetryPolicy(getConfigValue("retryAttempts", 5), getConfigValue("retryDelay", 500), getConfigValue("retryMaxDelay", 30000));
+			return retryPolicy;
+		} finally {
+			initLock.unlock();
+		}
+	}
 
 	/**
-	 * tries to connect to the interaction database and return the connections
+	 * creates the caches of nids, lids, uids and formulas, configured by the keys nameCacheSize, urlCacheSize, urnCacheSize and formulaCacheSize
+	 */
+	private static void createCaches() throws IOException {
+		initLock.lock();
+		try {
+			if (urnCache!=null) return;
+			nameCache=new LruCache<String, Integer>("name", getConfigValue("nameCacheSize", 100000));
+			urlCache=new LruCache<String, Integer>("url", getConfigValue("urlCacheSize", 10000));
+			formulaCache=new LruCache<Integer, String>("formula", getConfigValue("formulaCacheSize", 10000));
+			urnCache=new LruCache<String, Integer>("urn", getConfigValue("urnCacheSize", 100000));
+		} finally {
+			initLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the cache mapping names to their nids
+	 * @throws IOException if config file can not be read
+	 */
+	public static LruCache<String, Integer> nameCache() throws IOException {
+		if (urnCache==null) createCaches();
+		return nameCache;
+	}
+
+	/**
+	 * @return the cache mapping urls to their lids
+	 * @throws IOException if config file can not be read
+	 */
+	public static LruCache<String, Integer> urlCache() throws IOException {
+		if (urnCache==null) createCaches();
+		return urlCache;
+	}
+
+	/**
+	 * @return the cache mapping urns to their uids
+	 * @throws IOException if config file can not be read
+	 */
+	public static LruCache<String, Integer> urnCache() throws IOException {
+		if (urnCache==null) createCaches();
+		return urnCache;
+	}
+
+	/**
+	 * @return the cache mapping substance ids to their formulas, as read by getFormula
+	 * @throws IOException if config file can not be read
+	 */
+	public static LruCache<Integer, String> formulaCache() throws IOException {
+		if (urnCache==null) createCaches();
+		return formulaCache;
+	}
+
+	/**
+	 * @return the cache of formula codes read from web pages by getFormulaFrom, creating it on first use
+	 * @throws IOException if config file can not be read
+	 */
+	public static ScrapedFormulaCache scrapedFormulaCache() throws IOException {
+		if (scrapedFormulaCache!=null) return scrapedFormulaCache;
+		initLock.lock();
+		try {
+			if (scrapedFormulaCache==null) scrapedFormulaCache=new ScrapedFormulaCache();
+			return scrapedFormulaCache;
+		} finally {
+			initLock.unlock();
+		}
+	}
+
+	/**
+	 * empties the caches of nids, lids, uids and formulas. Has to be called, if rows of the tables names, urls, urns or substances are altered without using InteractionDB.
 	 * 
-	 * @return the database connection, after it has been established
-	 * @throws SQLException
 	 * @throws IOException if config file can not be read
 	 */
-	private static Connection databaseConnection() throws SQLException, IOException {
-		if (connection == null || connection.isClosed() || connectionOutDated()) connection = connectDB();		
-		lastConnectionAccess = new GregorianCalendar().getTimeInMillis()/1000;
-		return connection;
+	public static void invalidateCaches() throws IOException {
+		nameCache().clear();
+		urlCache().clear();
+		urnCache().clear();
+		formulaCache().clear();
 	}
 
-	private static boolean connectionOutDated() {
-		long time=new GregorianCalendar().getTimeInMillis()/1000;
-		return (time-lastConnectionAccess)>3600;
-  }
+	/**
+	 * switches to bulk-load mode: substrates, products, enzymes and directions of reactions are buffered and written in large batches (see BulkLoader).
+	 * Until flushBulkLoad or endBulkLoad is called, the buffered rows are not visible to queries.
+	 * 
+	 * @throws IOException if config file can not be read
+	 */
+	public static void beginBulkLoad() throws IOException {
+		initLock.lock();
+		try {
+			if (bulkLoader==null) bulkLoader=new BulkLoader();
+		} finally {
+			initLock.unlock();
+		}
+	}
+
+	/**
+	 * writes the rows buffered in bulk-load mode to the database. Has to be called before statements, which alter or delete rows of the buffered tables, e.g. merges and purges.
+	 * Within a transaction, the rows are written by the transaction and buffered again, if it is rolled back.
+	 * 
+	 * @return the number of rows written
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static int flushBulkLoad() throws SQLException, IOException {
+		BulkLoader loader=bulkLoader;
+		return (loader==null)?0:loader.flush();
+	}
 
 	/**
-	 * starts a new database statement. a new database connection is established, if needed
+	 * @return the bulk loader for buffering rows, or null if not in bulk-load mode or the current thread is within a transaction.
+	 * Rows written within a transaction are not buffered, so that they are rolled back with it.
+	 */
+	private static BulkLoader bulkLoader() {
+		return Transaction.active()?null:bulkLoader;
+	}
+
+	/**
+	 * writes the buffered rows and leaves bulk-load mode
 	 * 
+	 * @return the number of rows written by the final flush
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static int endBulkLoad() throws SQLException, IOException {
+		BulkLoader loader;
+		initLock.lock();
+		try {
+			loader=bulkLoader;
+			bulkLoader=null;
+		} finally {
+			initLock.unlock();
+		}
+		if (loader==null) return 0;
+		Tools.indent(loader.toString());
+		return loader.flush();
+	}
+
+	/**
+	 * starts a new database statement on a connection taken from the pool. The connection is handed back to the pool, when the statement is closed.
+	 *
 	 * @return the database statement object
 	 * @throws SQLException
 	 * @throws IOException if the db config file can not be read
 	 */
 	public static Statement createStatement() throws SQLException, IOException {
-		return databaseConnection().createStatement();
+		return connectionPool().createStatement();
 	}
 
 	/**
-	 * execute a certain database query
+	 * execute a certain database query. The query is repeated according to the retry policy, if it fails for a transient reason. Other failures are ignored.
 	 * 
 	 * @param query
 	 * @throws SQLException
 	 * @throws IOException 
 	 */
-	public static void execute(String query) throws SQLException, IOException  {
+	public static void execute(final String query) throws SQLException, IOException  {
 		if (testMode) return;
 		try {
-			Statement st = createStatement();			
-			st.execute(query);
-			st.close();
+			retryPolicy().run(new RetryPolicy.Operation<Boolean>() {
+				public Boolean run() throws SQLException, IOException {
+					Statement st = createStatement();
+					try {
+						return st.execute(query);
+					} finally {
+						st.close();
+					}
+				}
+			}, true);
 		} catch (SQLException e) {
-			if (e.getMessage().contains("Communication link failure")) try {
-					resetConnection();
-					Statement st = createStatement();			
-					st.execute(query);
-					st.close();
-			} catch (SQLException e2){
-				throw new SQLException(e.getMessage()+" : "+query);
-			}
+			if (RetryPolicy.isTransient(e)) throw new SQLException(e.getMessage()+" : "+query, e.getSQLState(), e.getErrorCode(), e);
 		}
 		Tools.indent(query);
 	}
 
-	private static void resetConnection() {
-	  try {
-	    connection.close();
-    } catch (SQLException e) {}
-	  connection=null;	  
-  }
+	/**
+	 * execute a parametrized database statement. Like execute(String), the statement is repeated according to the retry policy, if it fails for a transient reason. Other failures are ignored.
+	 * 
+	 * @param template the statement, containing a ? for each parameter
+	 * @param parameters the values bound to the statement. Collections are expanded to one value per element.
+	 * @return the number of affected rows
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static int execute(String template, Object... parameters) throws SQLException, IOException {
+		if (testMode) return 0;
+		int result=0;
+		try {
+			result=update(template, parameters);
+		} catch (SQLException e) {
+			if (RetryPolicy.isTransient(e)) throw new SQLException(e.getMessage()+" : "+describe(template, parameters), e.getSQLState(), e.getErrorCode(), e);
+		}
+		Tools.indent(template);
+		return result;
+	}
+
+	/**
+	 * handles the rows of a query result
+	 */
+	interface RowHandler {
+		public void handle(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * creates a prepared statement and binds the given parameters to it. The statement is taken from the statement cache of the pooled connection, if possible.
+	 * 
+	 * @param template the statement, containing a ? for each parameter
+	 * @param autoGeneratedKeys either Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+	 * @param parameters the values bound to the statement. Collections are expanded to one value per element.
+	 * @return the prepared statement, which has to be closed by the caller
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	static PreparedStatement prepare(String template, int autoGeneratedKeys, Object... parameters) throws SQLException, IOException {
+		return bind(connectionPool().prepareStatement(template, autoGeneratedKeys), parameters);
+	}
+
+	/**
+	 * creates a prepared statement for reading a large result row by row, on a connection of its own (see ConnectionPool.prepareStreamingStatement), and binds the given parameters to it
+	 * 
+	 * @return the prepared statement, which has to be closed by the caller
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	static PreparedStatement prepareStreaming(String template, Object... parameters) throws SQLException, IOException {
+		return bind(connectionPool().prepareStreamingStatement(template, dialect().streamingFetchSize()), parameters);
+	}
+
+	/**
+	 * binds the parameters to the statement, expanding collections to one value per element. The statement is closed, if binding fails.
+	 */
+	private static PreparedStatement bind(PreparedStatement ps, Object... parameters) throws SQLException {
+		try {
+			int index=1;
+			for (Object parameter:parameters){
+				if (parameter instanceof Collection<?>){
+					for (Object element:(Collection<?>)parameter) bind(ps, index++, element);
+				} else bind(ps, index++, parameter);
+			}
+			return ps;
+		} catch (SQLException e) {
+			ps.close();
+			throw e;
+		}
+	}
+
+	private static void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+		if (value==null) {
+			ps.setNull(index, Types.VARCHAR);
+		} else if (value instanceof Integer) {
+			ps.setInt(index, (Integer) value);
+		} else if (value instanceof Long) {
+			ps.setLong(index, (Long) value);
+		} else if (value instanceof Double || value instanceof Float) {
+			ps.setDouble(index, ((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			ps.setBoolean(index, (Boolean) value);
+		} else ps.setString(index, value.toString());
+	}
+
+	/**
+	 * @param count the number of values
+	 * @return a list of placeholders for an IN clause, e.g. "(?, ?, ?)"
+	 */
+	static String placeholders(int count) {
+		StringBuffer result=new StringBuffer("(");
+		for (int i=0; i<count; i++){
+			if (i>0) result.append(", ");
+			result.append('?');
+		}
+		return result.append(')').toString();
+	}
+
+	/**
+	 * @param columns the number of values per row
+	 * @param rows the number of rows
+	 * @return the rows of placeholders for a multi-row insert, e.g. "(?, ?), (?, ?)"
+	 */
+	static String placeholders(int columns, int rows) {
+		String row=placeholders(columns);
+		StringBuffer result=new StringBuffer();
+		for (int i=0; i<rows; i++){
+			if (i>0) result.append(", ");
+			result.append(row);
+		}
+		return result.toString();
+	}
+
+	private static String describe(String template, Object... parameters) {
+		return template+" "+Arrays.toString(parameters);
+	}
+
+	/**
+	 * runs a query and passes each row of the result to the handler. The query is repeated after transient failures, as long as no row has been handled.
+	 * 
+	 * @param handler the handler for the rows
+	 * @param template the query, containing a ? for each parameter
+	 * @param parameters the values bound to the query
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	static void query(final RowHandler handler, final String template, final Object... parameters) throws SQLException, IOException {
+		query(false, handler, template, parameters);
+	}
+
+	/**
+	 * runs a query like query(handler, template, parameters), but reads the result row by row instead of buffering it in the client, so passes over whole tables run in constant memory.
+	 * The query runs on a connection of its own, so the handler may run other queries, but it does not see uncommitted changes of the current transaction.
+	 * 
+	 * @param handler the handler for the rows
+	 * @param template the query, containing a ? for each parameter
+	 * @param parameters the values bound to the query
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	static void stream(final RowHandler handler, final String template, final Object... parameters) throws SQLException, IOException {
+		query(true, handler, template, parameters);
+	}
+
+	private static void query(final boolean streaming, final RowHandler handler, final String template, final Object... parameters) throws SQLException, IOException {
+		Tools.indent(template);
+		retryPolicy().run(new RetryPolicy.Operation<Void>() {
+			public Void run() throws SQLException, IOException {
+				PreparedStatement ps=streaming?prepareStreaming(template, parameters):prepare(template, Statement.NO_GENERATED_KEYS, parameters);
+				int rows=0;
+				try {
+					ResultSet rs=ps.executeQuery();
+					try {
+						while (rs.next()) {
+							handler.handle(rs);
+							rows++;
+						}
+					} finally {
+						rs.close();
+					}
+				} catch (SQLException e) {
+					System.err.println(describe(template, parameters));
+					if (rows>0) throw new RetryPolicy.NotRepeatableException("query failed after "+rows+" rows: "+e.getMessage(), e); // rows already passed to the handler: do not replay
+					throw e;
+				} finally {
+					ps.close();
+				}
+				return null;
+			}
+		}, true);
+	}
+
+	/**
+	 * runs a query and returns a cursor over its result, which is read row by row like by stream(...). The cursor has to be closed.
+	 * 
+	 * @param mapper converts the rows to the elements of the cursor
+	 * @param template the query, containing a ? for each parameter
+	 * @param parameters the values bound to the query
+	 * @return the cursor
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	static <T> Cursor<T> cursor(final Cursor.Mapper<T> mapper, final String template, final Object... parameters) throws SQLException, IOException {
+		Tools.indent(template);
+		return retryPolicy().run(new RetryPolicy.Operation<Cursor<T>>() {
+			public Cursor<T> run() throws SQLException, IOException {
+				PreparedStatement ps=prepareStreaming(template, parameters);
+				try {
+					return new Cursor<T>(ps, mapper);
+				} catch (SQLException e) {
+					System.err.println(describe(template, parameters));
+					ps.close();
+					throw e;
+				}
+			}
+		}, true);
+	}
+
+	/**
+	 * maps rows to the integer in their first column
+	 */
+	static final Cursor.Mapper<Integer> FIRST_INT=new Cursor.Mapper<Integer>() {
+		public Integer map(ResultSet rs) throws SQLException {
+			int value=rs.getInt(1);
+			return rs.wasNull()?null:value;
+		}
+	};
+
+	/**
+	 * maps rows to the string in their first column
+	 */
+	static final Cursor.Mapper<String> FIRST_STRING=new Cursor.Mapper<String>() {
+		public String map(ResultSet rs) throws SQLException {
+			return rs.getString(1);
+		}
+	};
+
+	/**
+	 * runs a query and returns the integer in the first column of the first row
+	 * 
+	 * @return the value or null, if there is no result or the value is NULL
+	 */
+	static Integer queryInt(String template, Object... parameters) throws SQLException, IOException {
+		final Integer[] result={null};
+		query(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				if (result[0]!=null) return;
+				int value=rs.getInt(1);
+				if (!rs.wasNull()) result[0]=value;
+			}
+		}, template, parameters);
+		return result[0];
+	}
+
+	/**
+	 * runs a query and returns the number in the first column of the first row
+	 * 
+	 * @return the value or null, if there is no result or the value is NULL
+	 */
+	static Double queryDouble(String template, Object... parameters) throws SQLException, IOException {
+		final Double[] result={null};
+		query(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				if (result[0]!=null) return;
+				double value=rs.getDouble(1);
+				if (!rs.wasNull()) result[0]=value;
+			}
+		}, template, parameters);
+		return result[0];
+	}
+
+	/**
+	 * runs a query and returns the string in the first column of the first row
+	 * 
+	 * @return the value or null, if there is no result or the value is NULL
+	 */
+	static String queryString(String template, Object... parameters) throws SQLException, IOException {
+		final String[] result={null};
+		final boolean[] found={false};
+		query(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				if (found[0]) return;
+				found[0]=true;
+				result[0]=rs.getString(1);
+			}
+		}, template, parameters);
+		return result[0];
+	}
+
+	/**
+	 * runs a query and adds the integers of the first column to the given collection. NULL values are skipped.
+	 * 
+	 * @return the collection passed in
+	 */
+	static <C extends Collection<Integer>> C queryIds(final C result, String template, Object... parameters) throws SQLException, IOException {
+		query(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				int value=rs.getInt(1);
+				if (!rs.wasNull() && value!=0) result.add(value);
+			}
+		}, template, parameters);
+		return result;
+	}
+
+	/**
+	 * runs a query and collects the integers of the first column, like queryIds, without boxing them
+	 * 
+	 * @return the set of integers
+	 */
+	static IntSet queryIntSet(String template, Object... parameters) throws SQLException, IOException {
+		return queryIntSet(false, template, parameters);
+	}
+
+	/**
+	 * like queryIntSet, but reads the result row by row (see stream)
+	 */
+	static IntSet streamIntSet(String template, Object... parameters) throws SQLException, IOException {
+		return queryIntSet(true, template, parameters);
+	}
+
+	private static IntSet queryIntSet(boolean streaming, String template, Object... parameters) throws SQLException, IOException {
+		final IntSet.Builder result=new IntSet.Builder();
+		query(streaming, new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				int value=rs.getInt(1);
+				if (!rs.wasNull() && value!=0) result.add(value);
+			}
+		}, template, parameters);
+		return result.build();
+	}
+
+	/**
+	 * runs a query and adds the strings of the first column to the given collection
+	 * 
+	 * @return the collection passed in
+	 */
+	static <C extends Collection<String>> C queryStrings(final C result, String template, Object... parameters) throws SQLException, IOException {
+		query(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				result.add(rs.getString(1));
+			}
+		}, template, parameters);
+		return result;
+	}
+
+	/**
+	 * executes a data manipulating statement, passing failures to the caller. The statement is repeated after transient failures, so it must be safe to execute it more than once.
+	 * 
+	 * @return the number of affected rows
+	 */
+	static int update(final String template, final Object... parameters) throws SQLException, IOException {
+		if (testMode) return 0;
+		return retryPolicy().run(new RetryPolicy.Operation<Integer>() {
+			public Integer run() throws SQLException, IOException {
+				PreparedStatement ps=prepare(template, Statement.NO_GENERATED_KEYS, parameters);
+				try {
+					return ps.executeUpdate();
+				} finally {
+					ps.close();
+				}
+			}
+		}, true);
+	}
+
+	/**
+	 * inserts a row, unless a row with the same primary key exists. Existing rows do not raise an exception.
+	 * 
+	 * @param table the table
+	 * @param columns the comma separated list of columns, beginning with the primary key columns
+	 * @param keyColumns the number of primary key columns
+	 * @param values the values of the row
+	 * @return the number of inserted rows, i.e. 0, if the key was already present
+	 */
+	static int insertIgnore(String table, String columns, int keyColumns, Object... values) throws SQLException, IOException {
+		if (testMode) return 0;
+		return update(dialect().insertIgnore(table, columns, keyColumns, 1), values);
+	}
+
+	/**
+	 * inserts the pairs (first, second) for all elements of the collection, skipping existing pairs
+	 * 
+	 * @param table a table, whose primary key consists of its two columns
+	 * @param columns the two comma separated columns
+	 * @param first the value of the first column, or null, if the collection supplies it
+	 * @param elements the values of the other column
+	 * @param second the value of the second column, or null, if the collection supplies it
+	 * @return the number of inserted rows
+	 */
+	private static int insertPairs(String table, String columns, Integer first, Collection<Integer> elements, Integer second) throws SQLException, IOException {
+		int result=0;
+		if (testMode) return result;
+		for (Vector<Integer> chunk:chunks(elements)){
+			Vector<Integer> values=new Vector<Integer>(2*chunk.size());
+			for (Integer element:chunk){
+				values.add(first==null?element:first);
+				values.add(second==null?element:second);
+			}
+			result+=update(dialect().insertIgnore(table, columns, chunk.size()), values);
+		}
+		return result;
+	}
+
+	/**
+	 * executes an insert statement and returns the key generated by the database. As the insert is not idempotent, it is only repeated, if no connection could be obtained.
+	 * 
+	 * @return the generated key or 0, if no key was generated
+	 */
+	static int insert(final String template, final Object... parameters) throws SQLException, IOException {
+		if (testMode) return 0;
+		return retryPolicy().run(new RetryPolicy.Operation<Integer>() {
+			public Integer run() throws SQLException, IOException {
+				PreparedStatement ps=prepare(template, Statement.RETURN_GENERATED_KEYS, parameters);
+				try {
+					ps.executeUpdate();
+					Tools.indent(template);
+					ResultSet rs=ps.getGeneratedKeys();
+					Integer id=null;
+					if (rs.next()) id=rs.getInt(1);
+					rs.close();
+					String lastInsertId=dialect().lastInsertId();
+					if (id==null && lastInsertId!=null) id=queryInt(lastInsertId); // same connection, as it is still leased by this thread
+					return (id==null)?0:id;
+				} catch (SQLException e) {
+					System.err.println(describe(template, parameters));
+					throw e;
+				} finally {
+					ps.close();
+				}
+			}
+		}, false);
+	}
+
+	/**
+	 * collects urls from the first column of the rows, skipping malformed urls
+	 */
+	private static class UrlCollector implements RowHandler {
+		private Collection<URL> urls;
+
+		private UrlCollector(Collection<URL> urls) {
+			this.urls=urls;
+		}
+
+		public void handle(ResultSet rs) throws SQLException {
+			try {
+				urls.add(new URL(rs.getString(1)));
+			} catch (MalformedURLException e) {
+				System.err.println(e.getMessage());
+			}
+		}
+	}
 
 	/**
 	 * converts a collection to a string in the format of the databses, e.g "(object1, object2, object 3)"
@@ -276,8 +934,8 @@ public class InteractionDB {
 	 * @param column
 	 * @return
 	 */
-	private static String key(String column) {
-		return column + " INT NOT NULL AUTO_INCREMENT PRIMARY KEY";
+	private static String key(String column) throws IOException {
+		return dialect().autoIncrementKey(column);
 	}
 
 	/**
@@ -295,35 +953,40 @@ public class InteractionDB {
 		Statement st = createStatement();
 		Tools.indent("Assuring existence of required tables...");
 		Vector<String> queries = new Vector<String>();
-		queries.add("CREATE TABLE names (" + key("nid") + ", name TEXT NOT NULL)");
-		queries.add("CREATE TABLE urls (" + key("lid") + ", url TEXT NOT NULL)");
+		String text=dialect().textType();
+		String options=dialect().tableOptions(null);
+		queries.add("CREATE TABLE names (" + key("nid") + ", name "+text+" NOT NULL, digest CHAR(40) UNIQUE)"+options);
+		queries.add("CREATE TABLE urls (" + key("lid") + ", url "+text+" NOT NULL, digest CHAR(40) UNIQUE)"+options);
 
-		queries.add("CREATE TABLE ids (" + key("id") + ",type INT NOT NULL REFERENCES names(nid))");
-		queries.add("CREATE TABLE id_ranges (nid INT PRIMARY KEY REFERENCES names(nid), min INT NOT NULL REFERENCES ids(id), max INT NOT NULL REFERENCES ids(id))");
+		queries.add("CREATE TABLE ids (" + key("id") + ",type INT NOT NULL REFERENCES names(nid))"+options);
+		queries.add("CREATE TABLE id_ranges (nid INT PRIMARY KEY REFERENCES names(nid), min INT NOT NULL REFERENCES ids(id), max INT NOT NULL REFERENCES ids(id))"+options);
 		
-		queries.add("CREATE TABLE id_names (id INT NOT NULL REFERENCES ids(id), nid INT NOT NULL REFERENCES names(nid), lid INT NOT NULL REFERENCES urls(lid), PRIMARY KEY(id,nid,lid))");
-		queries.add("CREATE TABLE compartments (id INT NOT NULL PRIMARY KEY REFERENCES ids(id),groups INT NOT NULL REFERENCES names(nid))");
-		queries.add("CREATE TABLE urns (" + key("uid") + ", id INT REFERENCES ids(id), urn TEXT NOT NULL)");
-		queries.add("CREATE TABLE reactions (id INT NOT NULL PRIMARY KEY REFERENCES ids(id), spontan BOOL DEFAULT 0)");
-		queries.add("CREATE TABLE substances (id INT NOT NULL PRIMARY KEY REFERENCES ids(id),formula TEXT)");
-
-		queries.add("CREATE TABLE substrates (sid INT NOT NULL REFERENCES substances(id),rid INT NOT NULL REFERENCES reactions(id),stoich FLOAT NOT NULL,PRIMARY KEY(sid,rid))");
-		queries.add("CREATE TABLE products  (sid INT NOT NULL REFERENCES substances(id),rid INT NOT NULL REFERENCES reactions(id),stoich FLOAT NOT NULL,PRIMARY KEY(sid,rid))");
-		queries.add("CREATE TABLE reaction_directions (rid INT NOT NULL REFERENCES reactions(id), cid INT NOT NULL REFERENCES compartments(id), forward BOOLEAN, backward BOOLEAN, PRIMARY KEY(rid,cid))");
-		queries.add("CREATE TABLE enzymes (id INT NOT NULL PRIMARY KEY REFERENCES ids(id),ec TEXT,substance BOOLEAN DEFAULT FALSE)");
-		queries.add("CREATE TABLE compartment_pathways (cid INT NOT NULL REFERENCES compartments(id),pid INT NOT NULL REFERENCES ids(id),PRIMARY KEY (cid,pid))");
-		queries.add("CREATE TABLE hierarchy (contained INT NOT NULL REFERENCES compartments(id),container INT NOT NULL REFERENCES compartments(id),PRIMARY KEY(contained,container))");
-		queries.add("CREATE TABLE urn_urls (uid INT NOT NULL REFERENCES urns(uid), lid INT NOT NULL REFERENCES urls(lid), PRIMARY KEY (uid,lid))");
-
-		queries.add("CREATE TABLE reaction_enzymes (rid INT NOT NULL REFERENCES reactions(id),eid INT NOT NULL REFERENCES enzymes(id),PRIMARY KEY(rid,eid))");
-		queries.add("CREATE TABLE enzymes_compartments (cid INT NOT NULL REFERENCES compartments(id),eid INT NOT NULL REFERENCES enzymes(id),PRIMARY KEY (cid,eid))");
-		queries.add("CREATE TABLE dates ("+key("did")+",date DATE NOT NULL, description TEXT NOT NULL)");
-		queries.add("CREATE TABLE decisions (keyphrase VARCHAR(500) NOT NULL PRIMARY KEY, value INT, autogenerated BOOL DEFAULT 0) CHARACTER SET latin1");
-		queries.add("CREATE TABLE abbrevations (abbr VARCHAR(32) PRIMARY KEY,id INTEGER NOT NULL REFERENCES substances(id))");
+		queries.add("CREATE TABLE id_names (id INT NOT NULL REFERENCES ids(id), nid INT NOT NULL REFERENCES names(nid), lid INT NOT NULL REFERENCES urls(lid), PRIMARY KEY(id,nid,lid))"+options);
+		queries.add("CREATE TABLE compartments (id INT NOT NULL PRIMARY KEY REFERENCES ids(id),groups INT NOT NULL REFERENCES names(nid))"+options);
+		queries.add("CREATE TABLE urns (" + key("uid") + ", id INT REFERENCES ids(id), urn "+text+" NOT NULL, digest CHAR(40) UNIQUE)"+options);
+		queries.add("CREATE TABLE reactions (id INT NOT NULL PRIMARY KEY REFERENCES ids(id), spontan BOOL DEFAULT 0)"+options);
+		queries.add("CREATE TABLE substances (id INT NOT NULL PRIMARY KEY REFERENCES ids(id),formula "+text+")"+options);
+
+		queries.add("CREATE TABLE substrates (sid INT NOT NULL REFERENCES substances(id),rid INT NOT NULL REFERENCES reactions(id),stoich FLOAT NOT NULL,PRIMARY KEY(sid,rid))"+options);
+		queries.add("CREATE TABLE products  (sid INT NOT NULL REFERENCES substances(id),rid INT NOT NULL REFERENCES reactions(id),stoich FLOAT NOT NULL,PRIMARY KEY(sid,rid))"+options);
+		queries.add("CREATE TABLE reaction_directions (rid INT NOT NULL REFERENCES reactions(id), cid INT NOT NULL REFERENCES compartments(id), forward BOOLEAN, backward BOOLEAN, PRIMARY KEY(rid,cid))"+options);
+		queries.add("CREATE TABLE enzymes (id INT NOT NULL PRIMARY KEY REFERENCES ids(id),ec "+text+",substance BOOLEAN DEFAULT FALSE)"+options);
+		queries.add("CREATE TABLE compartment_pathways (cid INT NOT NULL REFERENCES compartments(id),pid INT NOT NULL REFERENCES ids(id),PRIMARY KEY (cid,pid))"+options);
+		queries.add("CREATE TABLE hierarchy (contained INT NOT NULL REFERENCES compartments(id),container INT NOT NULL REFERENCES compartments(id),PRIMARY KEY(contained,container))"+options);
+		queries.add("CREATE TABLE urn_urls (uid INT NOT NULL REFERENCES urns(uid), lid INT NOT NULL REFERENCES urls(lid), PRIMARY KEY (uid,lid))"+options);
+
+		queries.add("CREATE TABLE reaction_enzymes (rid INT NOT NULL REFERENCES reactions(id),eid INT NOT NULL REFERENCES enzymes(id),PRIMARY KEY(rid,eid))"+options);
+		queries.add("CREATE TABLE enzymes_compartments (cid INT NOT NULL REFERENCES compartments(id),eid INT NOT NULL REFERENCES enzymes(id),PRIMARY KEY (cid,eid))"+options);
+		queries.add("CREATE TABLE dates ("+key("did")+",date DATE NOT NULL, description "+text+" NOT NULL)"+options);
+		queries.add("CREATE TABLE decisions (keyphrase VARCHAR(500) NOT NULL PRIMARY KEY, value INT, autogenerated BOOL DEFAULT 0)"+dialect().tableOptions("latin1"));
+		queries.add("CREATE TABLE abbrevations (abbr VARCHAR(32) PRIMARY KEY,id INTEGER NOT NULL REFERENCES substances(id))"+options);
+		queries.add("CREATE TABLE unifications (id1 INT NOT NULL REFERENCES ids(id), id2 INT NOT NULL REFERENCES ids(id), PRIMARY KEY(id1,id2))"+options);
+		queries.add("CREATE TABLE id_merges (merged INT NOT NULL PRIMARY KEY, kept INT NOT NULL)"+options);
+		queries.add("CREATE TABLE schema_version (version INT NOT NULL PRIMARY KEY, description "+text+", applied DATE)"+options);
+		queries.add(RangePurge.createTable(dialect()));
 		//queries.add("CREATE TABLE replacements (phrase VARCHAR(500) NOT NULL PRIMARY KEY, replacement VARCHAR(500))");
 		
 		
-		for (int i=1; i<7; i++) queries.add("INSERT INTO names VALUES ("+i+","+dbString(nameForType(i))+")");
 
 		String query = null;
 		for (Iterator<String> it = queries.iterator(); it.hasNext();) {
@@ -332,51 +995,133 @@ public class InteractionDB {
 				st.execute(query);
 				Tools.indent(query);
 			} catch (SQLException e) {
-				if (e.getMessage().contains("already exists")) continue;
+				if (dialect().alreadyExists(e) || e.getMessage().contains("already exists")) continue;
 				if (e.getMessage().contains("Duplicate key")) continue;
 				System.err.println(query);
 				throw e;
 			}
 		}
 		st.close();
+		SchemaMigrations.migrate();
+		for (int i=1; i<7; i++) update(dialect().upsert("names", "nid, name, digest", 1), i, nameForType(i), digest(nameForType(i)));
+		String restart=dialect().restartKey("names", "nid", queryInt("SELECT MAX(nid) FROM names")+1);
+		if (restart!=null) execute(restart);
 		Tools.indent("done.");
 		Tools.endMethod();
 	}
 
-	public static Integer getOrCreateEntry(String tableName, String idName, String keyName, Object key) throws SQLException, IOException {
-		Tools.startMethod("getOrCreateEntry(table='"+tableName+"', id column='"+idName+"', key column='"+ keyName+"', key value='"+ key+"')");
+	/**
+	 * adds the digest column to a table created before digests were introduced, and computes the digests of the present keys.
+	 * If a key occurs more than once, only its row with the lowest id gets the digest.
+	 */
+	static void addDigests(String tableName, String idName, String keyName) throws SQLException, IOException {
+		try {
+			queryInt("SELECT COUNT(digest) FROM "+tableName+" WHERE 1=0");
+			return; // column present
+		} catch (SQLException e) {}
+		Tools.startMethod("addDigests("+tableName+")");
+		update("ALTER TABLE "+tableName+" ADD digest CHAR(40)");
+		update("CREATE UNIQUE INDEX "+tableName+"_digest ON "+tableName+"(digest)");
+		final TreeMap<Integer, String> rows=new TreeMap<Integer, String>();
+		int last=0;
+		do {
+			rows.clear();
+			query(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					rows.put(rs.getInt(1), rs.getString(2));
+				}
+			}, "SELECT "+idName+", "+keyName+" FROM "+tableName+" WHERE "+idName+">? ORDER BY "+idName+" LIMIT "+CHUNK_SIZE, last);
+			if (rows.isEmpty()) break;
+			last=rows.lastKey();
+			TreeMap<String, Integer> digests=new TreeMap<String, Integer>();
+			for (Entry<Integer, String> row:rows.entrySet()) {
+				String digest=digest(row.getValue());
+				if (!digests.containsKey(digest)) digests.put(digest, row.getKey());
+			}
+			digests.keySet().removeAll(queryStrings(new TreeSet<String>(), "SELECT digest FROM "+tableName+" WHERE digest IN "+placeholders(digests.size()), digests.keySet()));
+			Transaction transaction=Transaction.begin();
+			try {
+				for (Entry<String, Integer> entry:digests.entrySet()) update("UPDATE "+tableName+" SET digest=? WHERE "+idName+"=?", entry.getKey(), entry.getValue());
+				transaction.commit();
+			} finally {
+				transaction.end();
+			}
+		} while (rows.size()==CHUNK_SIZE);
+		Tools.endMethod();
+	}
+
+	/**
+	 * computes the value of the digest column for a key
+	 * 
+	 * @param key a name, url or urn
+	 * @return the hexadecimal SHA-1 hash of the key's UTF-8 representation
+	 */
+	static String digest(Object key) {
+		try {
+			byte[] hash=MessageDigest.getInstance("SHA-1").digest(key.toString().getBytes("UTF-8"));
+			StringBuffer result=new StringBuffer(40);
+			for (byte b:hash){
+				result.append(Character.forDigit((b>>4)&0xF, 16));
+				result.append(Character.forDigit(b&0xF, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the digests of the keys, mapped to the keys
+	 */
+	private static TreeMap<String, String> digests(Collection<?> keys) {
+		TreeMap<String, String> result=new TreeMap<String, String>();
+		for (Object key:keys) result.put(digest(key), key.toString());
+		return result;
+	}
+
+	/**
+	 * reads the id of a key from a table like names, urls or urns. If the key is not in the table, it is inserted.
+	 * For names, urls and urns, the key is looked up by its digest. Concurrent calls for the same key insert it only once.
+	 * 
+	 * @return the id of the key
+	 */
+	public static Integer getOrCreateEntry(String tableName, String idName, String keyName, Object key) throws SQLException, IOException {
+		Tools.startMethod("getOrCreateEntry(table='"+tableName+"', id column='"+idName+"', key column='"+ keyName+"', key value='"+ key+"')");
+		if (key==null) {
+			Tools.endMethod(null);
+			return null;
+		}
+		Integer result;
+		if (DIGEST_TABLES.contains(tableName)){
+			String digest=digest(key);
+			String select="SELECT " + idName + " FROM " + tableName + " WHERE digest=?";
+			result=queryInt(select, digest);
+			if (result==null && !testMode) {
+				update(dialect().upsert(tableName, "digest, "+keyName, 1), digest, key); // updates the key by itself, if a concurrent loader inserted it
+				result=queryInt(select, digest);
+			}
+			if (result==null) result=0;
+		} else {
+			result=queryInt("SELECT " + idName + " FROM " + tableName + " WHERE " + keyName + "=?", key);
+			if (result==null) result=insert("INSERT INTO " + tableName + "("+keyName+") VALUES(?)", key);
+		}
+		Tools.endMethod(result);
+		return result;
+	}
+
+	/**
+	 * like getOrCreateEntry, but looks up the key in the cache first and caches the result
+	 */
+	private static Integer getOrCreateEntry(LruCache<String, Integer> cache, String tableName, String idName, String keyName, Object key) throws SQLException, IOException {
 		if (key==null) return null;
-		String query = "SELECT " + idName + " FROM " + tableName + " WHERE " + keyName + "=" + dbString(key);
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			int result = 0;
-			if (rs.next()) {
-				result = rs.getInt(1);
-				rs.close();
-				st.close();
-				Tools.endMethod(result);
-				return result;
-			}
-			rs.close();
-			rs=null;
-			int id = 0;
-			if (!testMode){
-				query = "INSERT INTO " + tableName + "("+keyName+") VALUES(" + dbString(key) + ")";
-				st.execute(query, Statement.RETURN_GENERATED_KEYS);			
-				Tools.indent(query);
-				rs = st.getGeneratedKeys();
-				if (rs.next()) id = rs.getInt(1);
-				rs.close();
-			}
-			st.close();
-			Tools.endMethod(id);
-			return id;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		String k=key.toString();
+		Integer result=cache.get(k);
+		if (result!=null) return result;
+		result=getOrCreateEntry(tableName, idName, keyName, key);
+		if (result!=null && result!=0) Transaction.cache(cache, k, result);
+		return result;
 	}
 
 //*************** basic methods ********************************	
@@ -393,55 +1138,153 @@ public class InteractionDB {
 	 */
 	public static int getOrCreateNid(String name) throws SQLException, IOException {
 		Tools.startMethod("getOrCreateNid("+name+")");
+		int result = getOrCreateEntry(nameCache(), "names", "nid", "name", normalizeName(name));
+		Tools.endMethod(result);
+		return result;
+	}
+
+	/**
+	 * removes a leading underscore and html entities from a name
+	 */
+	private static String normalizeName(String name) {
 		if (name.startsWith("_")) name=name.substring(1);
-		name=Tools.removeHtmlEntities(name);
-		int result = getOrCreateEntry("names", "nid", "name", name);
+		return Tools.removeHtmlEntities(name);
+	}
+
+	/**
+	 * reads the nids of several names. Names not in the database yet are inserted.
+	 * 
+	 * @param names the names to resolve
+	 * @return a map from each of the given names to its nid
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static TreeMap<String, Integer> getOrCreateNids(Collection<String> names) throws SQLException, IOException {
+		Tools.startMethod("getOrCreateNids("+names+")");
+		TreeMap<String, String> normalized=new TreeMap<String, String>(ObjectComparator.get());
+		for (String name:names) normalized.put(name, normalizeName(name));
+		TreeMap<String, Integer> nids=getOrCreateEntries(nameCache(), "names", "nid", "name", normalized.values());
+		TreeMap<String, Integer> result=new TreeMap<String, Integer>(ObjectComparator.get());
+		for (Entry<String, String> entry:normalized.entrySet()) result.put(entry.getKey(), nids.get(entry.getValue()));
+		Tools.endMethod(result);
+		return result;
+	}
+
+	/**
+	 * reads the ids for several keys of a table like names, urls or urns. Keys not in the database yet are inserted.
+	 * Keys found in the cache are not queried. Existing keys are read by their digests with IN lists of at most CHUNK_SIZE elements, missing keys are inserted with one multi-row statement per chunk.
+	 * 
+	 * @param cache the cache for the table
+	 * @param tableName the table
+	 * @param idName the auto increment column
+	 * @param keyName the key column
+	 * @param keys the keys
+	 * @return a map from the keys to their ids
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private static TreeMap<String, Integer> getOrCreateEntries(LruCache<String, Integer> cache, String tableName, String idName, String keyName, Collection<String> keys) throws SQLException, IOException {
+		Tools.startMethod("getOrCreateEntries("+tableName+", "+keys.size()+" keys)");
+		TreeMap<String, Integer> result=new TreeMap<String, Integer>(ObjectComparator.get());
+		TreeSet<String> missing=Tools.StringSet();
+		for (String key:keys){
+			if (key==null) continue;
+			Integer id=cache.get(key);
+			if (id==null) {
+				missing.add(key);
+			} else result.put(key, id);
+		}
+		TreeMap<String, Integer> read=new TreeMap<String, Integer>(ObjectComparator.get());
+		readEntries(tableName, idName, keyName, missing, read);
+		if (!missing.isEmpty() && !testMode) {
+			for (Vector<String> chunk:chunks(missing)) {
+				Vector<String> values=new Vector<String>(2*chunk.size());
+				for (Entry<String, String> entry:digests(chunk).entrySet()){
+					values.add(entry.getKey());
+					values.add(entry.getValue());
+				}
+				update(dialect().upsert(tableName, "digest, "+keyName, 1, chunk.size()), values); // keys inserted by concurrent loaders are updated by themselves
+			}
+			readEntries(tableName, idName, keyName, missing, read);
+		}
+		for (Entry<String, Integer> entry:read.entrySet()) Transaction.cache(cache, entry.getKey(), entry.getValue());
+		result.putAll(read);
 		Tools.endMethod(result);
 		return result;
 	}
+
+	/**
+	 * adds the ids of the given keys to the result map and removes the keys found from the set
+	 */
+	private static void readEntries(String tableName, String idName, String keyName, TreeSet<String> keys, final TreeMap<String, Integer> result) throws SQLException, IOException {
+		for (Vector<String> chunk:chunks(keys)){
+			final TreeMap<String, String> digests=digests(chunk);
+			query(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					result.put(digests.get(rs.getString(2)), rs.getInt(1));
+				}
+			}, "SELECT "+idName+", digest FROM "+tableName+" WHERE digest IN "+placeholders(digests.size()), digests.keySet());
+		}
+		keys.removeAll(result.keySet());
+	}
+
+	/**
+	 * splits a collection into chunks of at most CHUNK_SIZE elements
+	 */
+	static <T> Vector<Vector<T>> chunks(Collection<T> elements) {
+		Vector<Vector<T>> result=new Vector<Vector<T>>();
+		Vector<T> chunk=null;
+		for (T element:elements){
+			if (chunk==null || chunk.size()>=CHUNK_SIZE) {
+				chunk=new Vector<T>(Math.min(CHUNK_SIZE, elements.size()));
+				result.add(chunk);
+			}
+			chunk.add(element);
+		}
+		return result;
+	}
 	
 	/**
 	 * add a name to the given urn
 	 * 
 	 * @param urn
 	 * @param name
+	 * @return the number of rows inserted into id_names, i.e. 0 if the name was already assigned
 	 * @throws SQLException
 	 * @throws IOException 
 	 */
-	public static void addName(int id, String name, URL source) throws SQLException, IOException {
+	public static int addName(int id, String name, URL source) throws SQLException, IOException {
 		Tools.startMethod("addName(id="+id+", '"+name+"', "+source+")");
-		int nid = getOrCreateNid(name);
-		Integer lid = getOrCreateUrlId(source);
-		try {
-			execute("INSERT INTO id_names VALUES(" + id + ", " + nid + ", "+lid+")");
-		} catch (SQLException e) {
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
-		Tools.endMethod();
+		int result=addNames(id, Collections.singleton(name), source);
+		Tools.endMethod(result);
+		return result;
 	}
 
 	/**
-	 * add a bunch of names to a given urn
+	 * add a bunch of names to a given urn. The nids are resolved in one go and all assignments are written with one multi-row statement, which skips assignments already present.
 	 * 
 	 * @param urn
 	 * @param names
+	 * @return the number of rows inserted into id_names
 	 * @throws SQLException
 	 * @throws IOException 
 	 */
-	public static void addNames(int id, Collection<String> names, URL source) throws SQLException, IOException {
+	public static int addNames(int id, Collection<String> names, URL source) throws SQLException, IOException {
 		Tools.startMethod("addNames(id="+id+", "+names+", "+source+")");
 		int lid = getOrCreateUrlId(source);
-		Statement st = createStatement();
-		for (Iterator<String> it = names.iterator(); it.hasNext();) {
-			int nid = getOrCreateNid(it.next());
-			try {
-				execute("INSERT INTO id_names VALUES("+id +", " +nid + ","+lid+")");
-			} catch (SQLException e){
-				if (e.getMessage().contains("Duplicate key")) continue;
+		TreeSet<Integer> nids = new TreeSet<Integer>(getOrCreateNids(names).values());
+		int result=0;
+		for (Vector<Integer> chunk:chunks(nids)) {
+			Vector<Integer> values=new Vector<Integer>(3*chunk.size());
+			for (Integer nid:chunk){
+				values.add(id);
+				values.add(nid);
+				values.add(lid);
 			}
+			result+=update(dialect().insertIgnore("id_names", "id, nid, lid", chunk.size()), values);
 		}
-		st.close();
-		Tools.endMethod();
+		Tools.endMethod(result);
+		return result;
 	}
 	
 	/**
@@ -454,20 +1297,7 @@ public class InteractionDB {
 	 */
 	public static TreeSet<String> getNames(URL url) throws SQLException, IOException {
 		int lid = getOrCreateUrlId(url);
-		TreeSet<String> result = Tools.StringSet();
-		String query = "SELECT DISTINCT name FROM urls NATURAL JOIN id_names NATURAL JOIN names WHERE lid=" + lid;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next())	result.add(rs.getString(1));
-			rs.close();
-			st.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
-		return result;
+		return queryStrings(Tools.StringSet(), "SELECT DISTINCT name FROM id_names JOIN names ON names.nid=id_names.nid WHERE id_names.lid=?", lid);
 	}
 	
 	/**
@@ -480,19 +1310,7 @@ public class InteractionDB {
 	public static TreeSet<String> getNames(URN urn) throws SQLException, IOException{
 		Tools.startMethod("getNames("+urn+")");
 		int uid=getOrCreateUid(urn);
-		TreeSet<String> result = Tools.StringSet();
-		String query = "SELECT DISTINCT name FROM urns NATURAL JOIN id_names NATURAL JOIN names WHERE uid="+uid;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next())	result.add(rs.getString(1));
-			rs.close();
-			st.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		TreeSet<String> result = queryStrings(Tools.StringSet(), "SELECT DISTINCT name FROM urns JOIN id_names ON id_names.id=urns.id JOIN names ON names.nid=id_names.nid WHERE urns.uid=?", uid);
 		Tools.endMethod(result);
 		return result;
 	}
@@ -506,40 +1324,16 @@ public class InteractionDB {
 	 */
 	public static TreeSet<String> getNames(int id) throws SQLException, IOException{
 		Tools.startMethod("getNames("+id+")");
-		TreeSet<String> result = Tools.StringSet();
-		String query = "SELECT DISTINCT name FROM id_names NATURAL JOIN names WHERE id="+id;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next())	result.add(rs.getString(1));
-			rs.close();
-			st.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		TreeSet<String> result = queryStrings(Tools.StringSet(), "SELECT DISTINCT name FROM id_names JOIN names ON names.nid=id_names.nid WHERE id_names.id=?", id);
 		Tools.endMethod(result);
 		return result;
 	}
 	
 	public static String getName(int nid) throws SQLException, IOException{
 		Tools.startMethod("getName(nid="+nid+")");
-		String query="SELECT name FROM names WHERE nid="+nid;
-		String result=null;
-		try {
-		Statement st=createStatement();
-		ResultSet rs=st.executeQuery(query);
-		if (rs.next()) result=rs.getString(1);
-		rs.close();
-		st.close();
-		} catch (SQLException e){
-			System.err.println(query);
-			throw e;
-		}
+		String result=queryString("SELECT name FROM names WHERE nid=?", nid);
 		Tools.endMethod(result);
 		return result;
-		
 	}
 		
 //******** names **********************************************
@@ -556,11 +1350,30 @@ public class InteractionDB {
 	 */
 	public static Integer getOrCreateUrlId(URL url) throws SQLException, IOException {
 		Tools.startMethod("getOrCreateUrlId("+url+")");
-		Integer result=getOrCreateEntry("urls", "lid", "url", url);
+		Integer result=getOrCreateEntry(urlCache(), "urls", "lid", "url", url);
 		Tools.endMethod("return "+result);
 		return result;
 	}
 
+	/**
+	 * reads the ids of several urls. Urls not in the database yet are inserted.
+	 * 
+	 * @param urls the urls to resolve
+	 * @return a map from each of the given urls to its id
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static TreeMap<URL, Integer> getOrCreateUrlIds(Collection<URL> urls) throws SQLException, IOException {
+		Tools.startMethod("getOrCreateUrlIds("+urls+")");
+		TreeMap<String, URL> keys=new TreeMap<String, URL>(ObjectComparator.get());
+		for (URL url:urls) keys.put(url.toString(), url);
+		TreeMap<String, Integer> ids=getOrCreateEntries(urlCache(), "urls", "lid", "url", keys.keySet());
+		TreeMap<URL, Integer> result=new TreeMap<URL, Integer>(ObjectComparator.get());
+		for (Entry<String, URL> entry:keys.entrySet()) result.put(entry.getValue(), ids.get(entry.getKey()));
+		Tools.endMethod(result);
+		return result;
+	}
+
 	/**
 	 * try to get all urls referencing a certain urn
 	 * 
@@ -572,50 +1385,14 @@ public class InteractionDB {
 	public static TreeSet<URL> getReferencingURLs(URN urn) throws SQLException, IOException {
 		int uid = getOrCreateUid(urn);
 		TreeSet<URL> result = Tools.URLSet();
-		String query = "SELECT url FROM urn_urls NATURAL JOIN urls WHERE uid=" + uid;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next()) {
-				try {
-					result.add(new URL(rs.getString(1)));
-				} catch (MalformedURLException e) {
-					System.err.println(query);
-					System.err.println(e.getMessage());
-				}
-			}
-			st.close();
-			rs.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		query(new UrlCollector(result), "SELECT url FROM urn_urls JOIN urls ON urls.lid=urn_urls.lid WHERE urn_urls.uid=?", uid);
 		return result;
 	}
 	
 	public static Vector<URL> getReferencingURLs(int id) throws SQLException, IOException {
 		Tools.startMethod("getReferencingURLs("+id+")");
 		Vector<URL> result = new Vector<URL>();
-		String query = "SELECT DISTINCT url FROM ids NATURAL JOIN urns NATURAL JOIN urn_urls NATURAL JOIN urls WHERE id ="+id;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next()) {
-				try {
-					result.add(new URL(rs.getString(1)));
-				} catch (MalformedURLException e) {
-					System.err.println(query);
-					System.err.println(e.getMessage());
-				}
-			}
-			st.close();
-			rs.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		query(new UrlCollector(result), "SELECT DISTINCT url FROM ids JOIN urns ON urns.id=ids.id JOIN urn_urls ON urn_urls.uid=urns.uid JOIN urls ON urls.lid=urn_urls.lid WHERE ids.id=?", id);
 		Tools.endMethod(result);
 		return result;
 	}
@@ -662,7 +1439,26 @@ public class InteractionDB {
 	 */
 	public static int getOrCreateUid(URN urn) throws SQLException, IOException {
 		Tools.startMethod("getOrCreateUid("+urn+")");
-		int result = getOrCreateEntry("urns", "uid", "urn", urn);
+		int result = getOrCreateEntry(urnCache(), "urns", "uid", "urn", urn);
+		Tools.endMethod(result);
+		return result;
+	}
+
+	/**
+	 * reads the uids of several urns. Urns not in the database yet are inserted.
+	 * 
+	 * @param urns the urns to resolve
+	 * @return a map from each of the given urns to its uid
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static TreeMap<URN, Integer> getOrCreateUids(Collection<URN> urns) throws SQLException, IOException {
+		Tools.startMethod("getOrCreateUids("+urns+")");
+		TreeMap<String, URN> keys=new TreeMap<String, URN>(ObjectComparator.get());
+		for (URN urn:urns) keys.put(urn.toString(), urn);
+		TreeMap<String, Integer> ids=getOrCreateEntries(urnCache(), "urns", "uid", "urn", keys.keySet());
+		TreeMap<URN, Integer> result=new TreeMap<URN, Integer>(ObjectComparator.get());
+		for (Entry<String, URN> entry:keys.entrySet()) result.put(entry.getValue(), ids.get(entry.getKey()));
 		Tools.endMethod(result);
 		return result;
 	}
@@ -680,18 +1476,8 @@ public class InteractionDB {
 		Tools.startMethod("getReferencedUrns("+url+")");
 		int lid = getOrCreateUrlId(url);
 		TreeSet<URN> result = new TreeSet<URN>(ObjectComparator.get());
-		String query = "SELECT urn FROM urn_urls NATURAL JOIN urns WHERE lid=" + lid;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next()) result.add(new MiriamUrn(rs.getString(1)));
-			rs.close();
-			st.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		Vector<String> urns=queryStrings(new Vector<String>(), "SELECT urn FROM urn_urls JOIN urns ON urns.uid=urn_urls.uid WHERE urn_urls.lid=?", lid);
+		for (String urn:urns) result.add(new MiriamUrn(urn));
 		Tools.endMethod(result);
 		return result;
 	}
@@ -705,23 +1491,15 @@ public class InteractionDB {
 	 * @throws IOException 
 	 */
 	public static TreeSet<Integer> getUIDsFor(int id) throws SQLException, IOException {
-		Tools.startMethod("getUIDsFor("+id+")");
-		TreeSet<Integer> result = new TreeSet<Integer>(ObjectComparator.get());
-		String query = "SELECT uid FROM urns WHERE id=" + id;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next()) {
-				int dummy=rs.getInt(1);
-				if (dummy!=0)	result.add(dummy);
-			}
-			rs.close();
-			st.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		return getUIDsForAsIntSet(id).addTo(new TreeSet<Integer>(ObjectComparator.get()));
+	}
+	
+	/**
+	 * @return the uids of the urns of the id, like getUIDsFor(id)
+	 */
+	public static IntSet getUIDsForAsIntSet(int id) throws SQLException, IOException {
+		Tools.startMethod("getUIDsForAsIntSet("+id+")");
+		IntSet result = queryIntSet("SELECT uid FROM urns WHERE id=?", id);
 		Tools.endMethod(result);
 		return result;
 	}
@@ -738,24 +1516,13 @@ public class InteractionDB {
 	public static Vector<URN> getURNsFor(int id) throws SQLException, IOException {
 		Tools.startMethod("getURNsFor("+id+")");
 		Vector<URN> result = new Vector<URN>();
-		String query = "SELECT urn FROM urns WHERE id=" + id;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			Tools.indent(query);
-			while (rs.next()) {
-				try {
-					result.add(new MiriamUrn(rs.getString(1)));
-				} catch (DataFormatException e) {
-					System.err.println(query);
-					System.err.println(e.getMessage());
-				}
+		Vector<String> urns=queryStrings(new Vector<String>(), "SELECT urn FROM urns WHERE id=?", id);
+		for (String urn:urns) {
+			try {
+				result.add(new MiriamUrn(urn));
+			} catch (DataFormatException e) {
+				System.err.println(e.getMessage());
 			}
-			rs.close();
-			st.close();
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
 		}
 		Tools.endMethod(result);
 		return result;
@@ -763,19 +1530,10 @@ public class InteractionDB {
 
 	public static TreeSet<Integer> readUidsFor(Collection<URN> urns) throws SQLException, IOException{
 		Tools.startMethod("readUidsFor("+urns+")");
-		String query="SELECT uid FROM urns WHERE urn IN "+setToDBset(urns);		
-		try {
-	    Statement st=createStatement();
-	    ResultSet rs=st.executeQuery(query);
-	    Tools.indent(query);
-	    TreeSet<Integer> result=new TreeSet<Integer>();
-			while (rs.next()) result.add(rs.getInt(1));
-			Tools.endMethod(result);
-	    return result;
-    } catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}		
+		TreeSet<Integer> result=new TreeSet<Integer>();
+		if (!urns.isEmpty()) queryIds(result, "SELECT uid FROM urns WHERE digest IN "+placeholders(urns.size()), digests(urns).keySet());
+		Tools.endMethod(result);
+		return result;
 	}
 //**************** urns ***************************************************
 	
@@ -783,93 +1541,45 @@ public class InteractionDB {
 
 	public static int newId(int type) throws SQLException, IOException {
 		Tools.startMethod("newId(type="+type+")");
-		String query = "INSERT INTO ids VALUES(0, " + type + ")";
-		try {
-			int id = 0;
-			if (!testMode){
-				Statement st = createStatement();
-				st.executeUpdate(query, Statement.RETURN_GENERATED_KEYS);
-				Tools.indent(query);
-				ResultSet rs = st.getGeneratedKeys();
-				if (rs.next()) id = rs.getInt(1);
-				rs.close();
-				st.close();
-			}
-			Tools.endMethod(id);
-			return id;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		int id=insert("INSERT INTO ids(type) VALUES(?)", type);
+		Tools.endMethod(id);
+		return id;
 	}
 	
 	public static Integer readIdFor(Integer uid) throws SQLException, IOException{
 		Tools.startMethod("readIdFor("+uid+")");
-		String query="SELECT id FROM urns WHERE uid="+uid;		
-		try {
-	    Statement st=createStatement();
-	    ResultSet rs=st.executeQuery(query);
-	    Tools.indent(query);
-	    Integer result=null;
-	    if (rs.next()) result=rs.getInt(1);
+		Integer result=queryInt("SELECT id FROM urns WHERE uid=?", uid);
 		if (result!=null && result==0) result=null;
-	    rs.close();
-	    st.close();
 		Tools.endMethod(result);
-	    return result;
-    } catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}		
+		return result;
 	}
 	
 	public static Integer readIdFor(URN urn) throws SQLException, IOException {
 		Tools.startMethod("readIdFor("+urn+")");
-		String query="SELECT id FROM urns WHERE urn="+dbString(urn);		
-		try {
-	    Statement st=createStatement();
-	    ResultSet rs=st.executeQuery(query);
-	    Tools.indent(query);
-	    Integer result=null;
-	    if (rs.next()) result=rs.getInt(1);
-			if (result!=null && result==0) result=null;
-			Tools.endMethod(result);
-	    return result;
-    } catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}		
+		Integer result=queryInt("SELECT id FROM urns WHERE digest=?", digest(urn));
+		if (result!=null && result==0) result=null;
+		Tools.endMethod(result);
+		return result;
 	}
 	
 	public static TreeSet<Integer> readIdsFor(Collection<Integer> uids) throws SQLException, IOException{
-		Tools.startMethod("readIdsFor("+uids+")");
-    TreeSet<Integer> result=new TreeSet<Integer>();
-    if (uids!=null && !uids.isEmpty()){
-    	String query="SELECT id FROM urns WHERE uid IN "+setToDBset(uids);		
-			try {
-	    	Statement st=createStatement();
-	    	ResultSet rs=st.executeQuery(query);
-	    	Tools.indent(query);
-				while (rs.next()) {
-					int dummy=rs.getInt(1);
-					if (dummy!=0) result.add(dummy);
-				}
-    	} catch (SQLException e) {
-				System.err.println(query);
-				throw e;
-			}		
-    }
+		return readIdsForAsIntSet(uids).addTo(new TreeSet<Integer>());
+	}
+	
+	public static IntSet readIdsForAsIntSet(Collection<Integer> uids) throws SQLException, IOException{
+		Tools.startMethod("readIdsForAsIntSet("+uids+")");
+		IntSet result=(uids==null || uids.isEmpty())?IntSet.EMPTY:queryIntSet("SELECT id FROM urns WHERE uid IN "+placeholders(uids.size()), uids);
 		Tools.endMethod(result);
-    return result;
+		return result;
 	}
 	
 	public static int getOrCreateIdFor(int uid,int type) throws SQLException, IOException{
 		Tools.startMethod("getOrCreateIdFor(uid="+uid+", type="+type+")");
 		Integer id=readIdFor(uid);
-    if (id==null){
-	    id=newId(type);
-	    execute("UPDATE urns SET id="+id+" WHERE uid ="+uid);
-	  }
+		if (id==null){
+			id=newId(type);
+			update("UPDATE urns SET id=? WHERE uid=?", id, uid);
+		}
 		Tools.endMethod(id);
 		return id;
 	}
@@ -885,13 +1595,11 @@ public class InteractionDB {
 	public static int getOrCreateIdFor(Collection<URN> urns, int type) throws SQLException, NoSuchMethodException, IOException{
 		Tools.startMethod("getOrCreateIdFor("+urns+", "+type+")");
 		TreeSet<Integer> uids=new TreeSet<Integer>();
-		if (urns!=null){
-			for (Iterator<URN> it = urns.iterator(); it.hasNext();) uids.add(getOrCreateUid(it.next()));
-		}		
+		if (urns!=null && !urns.isEmpty()) uids.addAll(getOrCreateUids(urns).values());
 		TreeSet<Integer> ids = readIdsFor(uids);
 		if (ids.isEmpty()){
 			int id=newId(type);
-			if (!uids.isEmpty()) execute("UPDATE urns SET id="+id+" WHERE uid IN "+setToDBset(uids));
+			if (!uids.isEmpty()) update("UPDATE urns SET id=? WHERE uid IN "+placeholders(uids.size()), id, uids);
 			Tools.endMethod(id);
 			return id;
 		}
@@ -899,64 +1607,85 @@ public class InteractionDB {
 			// we have at least two of the urns in the database, and they point to different ids
 			int result=mergeIds(ids);
 			Tools.endMethod("return "+result);
-			execute("UPDATE urns SET id="+result+" WHERE uid in "+setToDBset(uids)); // sollte bei allen relevanten uids die ids richtig setzen
+			update("UPDATE urns SET id=? WHERE uid IN "+placeholders(uids.size()), result, uids); // sollte bei allen relevanten uids die ids richtig setzen
 			return result; 
 		} else if (uids.size()>1){ // at this point, we have one id, but several uids, which may not all point to the id
-			execute("UPDATE urns SET id="+ids.first()+" WHERE uid in "+setToDBset(uids));
+			update("UPDATE urns SET id=? WHERE uid IN "+placeholders(uids.size()), ids.first(), uids);
 		}
 		
 		Tools.endMethod("return "+ids.first());
 		return ids.first();
 	}
 
+	/**
+	 * if enabled, ids found to describe the same entity are not merged while importing, but recorded in the table unifications.
+	 * They are merged afterwards by an UrnConsolidator, which is much faster than merging them one by one.
+	 * 
+	 * @param defer true to record instead of merging ids
+	 */
+	public static void setDeferredUnification(boolean defer) {
+		deferUnification=defer;
+	}
+
+	/**
+	 * merges all ids into the first one. All merges are done in one transaction.
+	 * If unification is deferred, the ids are only recorded to be merged later.
+	 */
 	private static Integer mergeIds(TreeSet<Integer> ids) throws SQLException, NoSuchMethodException, IOException {
 		Tools.startMethod("mergeIds("+ids+")");
-		int type=getTypesOf(ids);
-		Iterator<Integer> it = ids.iterator();
-		Integer remaining = it.next();
-		while (it.hasNext()) mergeIds(remaining, it.next(),type);
+		Integer remaining = ids.first();
+		if (deferUnification){
+			insertPairs("unifications", "id1, id2", remaining, ids.tailSet(remaining, false), null);
+			Tools.endMethod(remaining);
+			return remaining;
+		}
+		final int type=getTypesOf(ids);
+		if (ids.size()>1) flushBulkLoad(); // buffered reactants of the merged ids have to be re-assigned, too
+		final Integer first=remaining;
+		final TreeSet<Integer> merged=new TreeSet<Integer>(ids.tailSet(remaining, false));
+		transactional(new Work<Void>() {
+			Void work() throws SQLException, IOException, NoSuchMethodException {
+				for (Integer id:merged) mergeIds(first, id, type);
+				return null;
+			}
+		});
 		Tools.endMethod(remaining);
 		return remaining;
   }
 
 	private static int getTypesOf(TreeSet<Integer> ids) throws SQLException, IOException {
 	  Tools.startMethod("unequalTypesOf("+ids+")");
-	  String query="SELECT DISTINCT type FROM ids WHERE id IN "+setToDBset(ids);
-	  try{
-	  	Statement st=createStatement();
-	  	ResultSet rs=st.executeQuery(query);
-	  	String error=null;
-	  	int result=0;
-	  	if (rs.next()){
-	  		result=rs.getInt(1);
-		  	if (rs.next()) error="Found more than one type for ids ("+ids+")!";
-		 	} else error="Found NO type for ids ("+ids+")!";	  	
-	  	rs.close();
-	  	st.close();
-	  	if (error!=null && !testMode) throw new UnexpectedException(error);
-	  	Tools.endMethod(result);
-	  	return result;
-		} catch (SQLException e){
-			System.err.println(query);
-			throw e;
-		}
+	  TreeSet<Integer> types=queryIds(new TreeSet<Integer>(), "SELECT DISTINCT type FROM ids WHERE id IN "+placeholders(ids.size()), ids);
+	  String error=null;
+	  int result=0;
+	  if (types.isEmpty()) {
+	  	error="Found NO type for ids ("+ids+")!";
+	  } else {
+	  	result=types.first();
+	  	if (types.size()>1) error="Found more than one type for ids ("+ids+")!";
+	  }
+	  if (error!=null && !testMode) throw new UnexpectedException(error);
+	  Tools.endMethod(result);
+	  return result;
   }
 
-	private static void mergeIds(Integer remaining, int merged,int type) throws SQLException, NoSuchMethodException, IOException {
+	private static void mergeIds(final Integer remaining, final int merged,final int type) throws SQLException, NoSuchMethodException, IOException {
 		Tools.startMethod("mergeIds("+remaining+", "+merged+", type="+type+")");
+		// merging re-assigns urns and names to the remaining id, but keeps their uids and nids, so the caches stay valid
 		if (mergingAllowed(remaining,merged)){
-			switch (type){
-			case SUBSTANCE: mergeSubstances(remaining,merged); break;
-			default:
-				throw new NoSuchMethodException("unification of entities of " + nameForType(type));
-			}
-			execute("UPDATE urns SET id="+remaining+" WHERE id="+merged);
-			try {
-				execute("UPDATE id_names SET id="+remaining+" WHERE id="+merged);
-			} catch (SQLException e){
-				if (!e.getMessage().contains("Duplicate entry")) throw e;
-			}
-			execute("DELETE FROM id_names WHERE id="+merged);
+			transactional(new Work<Void>() {
+				Void work() throws SQLException, IOException, NoSuchMethodException {
+					switch (type){
+					case SUBSTANCE: mergeSubstances(remaining,merged); break;
+					default:
+						throw new NoSuchMethodException("unification of entities of " + nameForType(type));
+					}
+					update("UPDATE urns SET id=? WHERE id=?", remaining, merged);
+					update(dialect().insertIgnoreSelect("id_names", "id, nid, lid", 3, "SELECT ids.id, nid, lid FROM ids, id_names WHERE ids.id=? AND id_names.id=?"), remaining, merged); // existing assignments do not raise an exception
+					update("DELETE FROM id_names WHERE id=?", merged);
+					return null;
+				}
+			});
 		}
 		Tools.endMethod();
   }
@@ -997,186 +1726,183 @@ public class InteractionDB {
 	 * @throws IOException
 	 * @throws NoTokenException
 	 */
-	private static TreeMap<String,TreeSet<String>> loadUnificationRules() throws MalformedURLException, IOException, NoTokenException {
-		if (unificationRules==null){
-			unificationRules=new TreeMap<String, TreeSet<String>>(ObjectComparator.get());			
-			XMLReader xr = new XMLReader(getUnificationRulesFilename());
-			XmlToken rules=xr.readToken();
-			if (rules.instanceOf("urnRules")){
-				for (XmlToken rule: rules.subtokens()){
-					if (rule.instanceOf("denyUnification")){
-						String urn1=rule.getValue("urn1");
-						String urn2=rule.getValue("urn2");
-						if (!unificationRules.containsKey(urn1)) unificationRules.put(urn1, Tools.StringSet());
-						unificationRules.get(urn1).add(urn2);
+	static TreeMap<String,TreeSet<String>> loadUnificationRules() throws MalformedURLException, IOException, NoTokenException {
+		if (unificationRules!=null) return unificationRules;
+		initLock.lock();
+		try {
+			if (unificationRules==null){
+				TreeMap<String, TreeSet<String>> rulesMap=new TreeMap<String, TreeSet<String>>(ObjectComparator.get());			
+				XMLReader xr = new XMLReader(getUnificationRulesFilename());
+				XmlToken rules=xr.readToken();
+				if (rules.instanceOf("urnRules")){
+					for (XmlToken rule: rules.subtokens()){
+						if (rule.instanceOf("denyUnification")){
+							String urn1=rule.getValue("urn1");
+							String urn2=rule.getValue("urn2");
+							if (!rulesMap.containsKey(urn1)) rulesMap.put(urn1, Tools.StringSet());
+							rulesMap.get(urn1).add(urn2);
+						}
 					}
 				}
+				unificationRules=rulesMap;
 			}
+			return unificationRules;
+		} finally {
+			initLock.unlock();
 		}
-	  
-		return unificationRules;
   }
 
 	private static String getUnificationRulesFilename() throws IOException {
 	  return configuration().get("unificationRules", System.getProperty("user.home")+"/workspace/InteractionDb/urnRules.xml");
   }
 
+	/**
+	 * moves the reactants and abbrevations of the merged substance to the kept substance and removes the merged substance.
+	 * Has to be called within a transaction.
+	 */
 	private static void mergeSubstances(Integer keptId, int mergedId) throws SQLException, IOException {
 		Tools.startMethod("mergeSubstances("+keptId+", "+mergedId+")");
 		
 		uniteReactants("products",keptId,mergedId);
 		uniteReactants("substrates",keptId,mergedId);
 		
-		execute("DELETE FROM substances WHERE id="+mergedId);
+		update("UPDATE abbrevations SET id=? WHERE id=?", keptId, mergedId);
+		update("DELETE FROM substances WHERE id=?", mergedId);
+		Transaction.invalidate(formulaCache(), mergedId);
 		Tools.endMethod();
 	}
 
+	/**
+	 * replaces the merged substance by the kept one in all reactions, using three statements regardless of the number of reactions:
+	 * the stoichiometries of reactions containing both substances are added, reactions containing only the merged substance are re-keyed,
+	 * and the remaining rows of the merged substance are deleted.
+	 * 
+	 * @param table either substrates or products
+	 */
 	private static void uniteReactants(String table, Integer keptId, int mergedId) throws SQLException, IOException {
 		Tools.startMethod("uniteReactants("+table+", "+mergedId+" ← "+keptId+")");
-		String query="SELECT rid,stoich FROM "+table+" WHERE sid="+mergedId; // select Reactions with obsolete agent
-		
-		try{
-			Statement st=createStatement();
-			Tools.indent(query);
-			ResultSet rs=st.executeQuery(query);
-			TreeMap<Integer,Double> reactionsWithObsoleteReactant=new TreeMap<Integer, Double>();
-			while (rs.next()) reactionsWithObsoleteReactant.put(rs.getInt(1),rs.getDouble(2)); // collect rids respective stoich for obsolete substances
-			rs.close();
-		
-			for (Iterator<Entry<Integer, Double>> rit = reactionsWithObsoleteReactant.entrySet().iterator(); rit.hasNext();){
-				Entry<Integer, Double> entry = rit.next();
-				int rid=entry.getKey();
-				double obsoleteStoich=entry.getValue();
-			
-				query="SELECT stoich FROM "+table+" WHERE rid="+rid+" AND sid="+keptId;
-				Tools.indent(query);
-				rs=st.executeQuery(query);
-				
-				if (rs.next()){ // both, the kept and the merged id have an entry in this reaction
-					double newStoich=obsoleteStoich+rs.getDouble(1);
-					rs.close();
-				
-					query="UPDATE "+table+" SET stoich = "+newStoich+" WHERE rid="+rid+" AND sid="+keptId; // update stoichiometric coefficient of kept agent
-					Tools.indent(query);
-					execute(query);
-				
-					// entry for merged id will be removed after loop				
-				} else { // only the kept id have en entry in this reaction term
-					query="UPDATE "+table+" SET sid="+keptId+" WHERE rid="+rid+" AND sid="+mergedId;
-					Tools.indent(query);
-					execute(query);
-				}				
-			}
-			st.close();
-			if (!reactionsWithObsoleteReactant.isEmpty()){
-				query="DELETE FROM "+table+" WHERE sid="+mergedId; // remove entries of obsolete agent from table
-				Tools.indent(query);
-				execute(query);
-			}
-		} catch (SQLException e){
-			System.err.println(query);
-			throw	e;
-		}
-		Tools.endMethod();
+		int added=update(dialect().updateJoined(table+" k", table+" m", "k.rid=m.rid AND k.sid=? AND m.sid=?", "k.stoich=k.stoich+m.stoich"), keptId, mergedId);
+		int moved=update(dialect().insertIgnoreSelect(table, "sid, rid, stoich", 2, "SELECT ids.id, rid, stoich FROM ids, "+table+" WHERE ids.id=? AND "+table+".sid=?"), keptId, mergedId);
+		update("DELETE FROM "+table+" WHERE sid=?", mergedId);
+		Tools.endMethod(added+" stoichiometries added, "+moved+" moved");
   }
 
 	public static Integer getLastID() throws SQLException, IOException {
 		Tools.startMethod("getLastId()");
-		String query="SELECT MAX(id) FROM ids";
-		try {
-			Statement st=createStatement();
-			ResultSet rs=st.executeQuery(query);
-			rs.next();
-			int result=rs.getInt(1);
-			rs.close();
-			st.close();
-			Tools.endMethod(result);
-			return result;
-		} catch (SQLException e){
-			System.err.println(query);
-			throw e;
-		}
+		Integer result=queryInt("SELECT MAX(id) FROM ids");
+		if (result==null) result=0;
+		Tools.endMethod(result);
+		return result;
   }
 
 //******** component ids *****************************************
 	
 //******** references *********************************
 	
-	public static void insertReference(int lid, int uid) throws SQLException, IOException{
+	/**
+	 * links an urn to an url, unless they are linked already
+	 * 
+	 * @return 1, if the link was inserted, 0, if it existed
+	 */
+	public static int insertReference(int lid, int uid) throws SQLException, IOException{
 		Tools.startMethod("insertReference(lid="+lid+", uid="+uid+")");
-		try {
-			execute("INSERT INTO urn_urls VALUES ("+uid+", "+lid+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
-		Tools.endMethod();
+		int result=insertIgnore("urn_urls", "uid, lid", 2, uid, lid);
+		Tools.endMethod(result);
+		return result;
 	}
 
-	public static void insertReference(URL url,URN urn) throws SQLException, IOException{
+	public static int insertReference(URL url,URN urn) throws SQLException, IOException{
 		Tools.startMethod("insertReference("+url+", "+urn+")");
 		int urlid=getOrCreateUrlId(url);
 		int uid=getOrCreateUid(urn);
-		insertReference(urlid, uid);
-		Tools.endMethod();
+		int result=insertReference(urlid, uid);
+		Tools.endMethod(result);
+		return result;
 	}
 	
-	public static void insertReferences(URL url,Collection<URN> urns) throws SQLException, IOException{
+	/**
+	 * @return the number of links inserted, existing links are skipped
+	 */
+	public static int insertReferences(URL url,Collection<URN> urns) throws SQLException, IOException{
 		Tools.startMethod("insertReferences("+url+", "+urns+")");
 		int urlid=getOrCreateUrlId(url);
-		for (Iterator<URN> it = urns.iterator(); it.hasNext();){
-			int uid=getOrCreateUid(it.next());
-			insertReference(urlid, uid);			
-		}
-		Tools.endMethod();
+		TreeSet<Integer> uids=new TreeSet<Integer>(getOrCreateUids(urns).values());
+		int result=insertPairs("urn_urls", "uid, lid", null, uids, urlid);
+		Tools.endMethod(result);
+		return result;
 	}
 	
-	public static void linkPathway(Integer pid, Integer cid) throws SQLException, IOException {
+	public static int linkPathway(Integer pid, Integer cid) throws SQLException, IOException {
 		Tools.startMethod("linkPathway(pid="+pid+", cid="+cid+")");
-		execute("INSERT INTO compartment_pathways VALUES(" + cid + ", " + pid + ")");
-		Tools.endMethod();
+		int result=insertIgnore("compartment_pathways", "cid, pid", 2, cid, pid);
+		Tools.endMethod(result);
+		return result;
   }
 
-	public static void linkEnzymesToReaction(int rid, TreeSet<String> ecNumbers) throws SQLException, IOException {
-		TreeSet<Integer> eids = readEnzymeIds(ecNumbers);
-		for (Iterator<Integer> eid = eids.iterator(); eid.hasNext();){
-			execute("INSERT INTO reaction_enzymes VALUES (" + rid + "," + eid.next() + ")");
-		}
+	/**
+	 * @return the number of links inserted, existing links are skipped. In bulk-load mode, the links are buffered and 0 is returned.
+	 */
+	public static int linkEnzymesToReaction(final int rid, TreeSet<String> ecNumbers) throws SQLException, IOException {
+		final TreeSet<Integer> eids = readEnzymeIds(ecNumbers);
+		BulkLoader loader=bulkLoader();
+		if (loader!=null){
+			for (Integer eid:eids) loader.add("reaction_enzymes", "rid, eid", 2, false, rid, eid);
+			return 0;
+		}
+		return insertPairs("reaction_enzymes", "rid, eid", rid, eids, null);
   }
 	
-	public static void linkOrganismsToEnzyme(TreeSet<Integer> cids, int eid) throws SQLException, IOException {
+	/**
+	 * @return the number of links inserted, existing links are skipped
+	 */
+	public static int linkOrganismsToEnzyme(final TreeSet<Integer> cids, final int eid) throws SQLException, IOException {
 		Tools.startMethod("linkOrganismsToEnzyme(cids="+cids+", eid="+eid+")");
-		if (testMode) return;
-		String query=null;
-		try {
-			Statement st = createStatement();			
-			for (Iterator<Integer> cid = cids.iterator();cid.hasNext();) {
-				query="INSERT INTO enzymes_compartments VALUES("+cid.next()+", "+eid+")";
-				st.execute(query);
-			}
-			st.close();
-		} catch (SQLException e) {
-			if (e.getMessage().contains("Communication link failure"))
-				try {
-					resetConnection();
-					Statement st = createStatement();			
-					st.execute(query);
-					st.close();
-				} catch (SQLException e2){
-					throw new SQLException(e.getMessage()+" : "+query);
-				}
-		}		
-		Tools.endMethod();
+		int result=insertPairs("enzymes_compartments", "cid, eid", null, cids, eid);
+		Tools.endMethod(result);
+		return result;
   }
 
 //********** references *************************************************
 	
 //******** organism components ***********************************
 	
-	private static int createBaseComponent(int type, URL source, Collection<URN>urns, Collection<String> names) throws SQLException, NoSuchMethodException, IOException{
+	/**
+	 * a unit of work for transactional(...), which may also fail with a NoSuchMethodException, e.g. when merging ids
+	 */
+	private static abstract class Work<T> implements RetryPolicy.Operation<T> {
+		abstract T work() throws SQLException, IOException, NoSuchMethodException;
+		
+		public T run() throws SQLException, IOException {
+			try {
+				return work();
+			} catch (NoSuchMethodException e) {
+				throw new UndeclaredThrowableException(e);
+			}
+		}
+	}
+	
+	/**
+	 * runs the work by Transaction.run, i.e. it is replayed as a whole after transient failures
+	 */
+	private static <T> T transactional(Work<T> work) throws SQLException, IOException, NoSuchMethodException {
+		try {
+			return Transaction.run(work);
+		} catch (UndeclaredThrowableException e) {
+			if (e.getCause() instanceof NoSuchMethodException) throw (NoSuchMethodException) e.getCause();
+			throw e;
+		}
+	}
+	
+	private static int createBaseComponent(final int type, final URL source, final Collection<URN>urns, final Collection<String> names) throws SQLException, NoSuchMethodException, IOException{
 		Tools.startMethod("createBaseComponent("+nameForType(type)+", "+source+", "+urns+", "+names+")");
-		int id = getOrCreateIdFor(urns, type);
-		addNames(id, names, source);
-		if (urns!=null && !urns.isEmpty())	insertReferences(source, urns);
+		int id=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int id=getOrCreateIdFor(urns, type);
+				addNames(id, names, source);
+				if (urns!=null && !urns.isEmpty())	insertReferences(source, urns);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
@@ -1185,29 +1911,44 @@ public class InteractionDB {
 
 
 
-	private static int createBaseComponent(int type, URL source, URN urn, Collection<String> names) throws SQLException, IOException{
+	private static int createBaseComponent(final int type, final URL source, final URN urn, final Collection<String> names) throws SQLException, IOException{
 		Tools.startMethod("createBaseComponent("+nameForType(type)+", "+source+", "+urn+", "+names+")");
-		int id = getOrCreateIdFor(urn, type);
-		addNames(id,names,source);
-		if (urn!=null) insertReference(source, urn);
+		int id=Transaction.run(new RetryPolicy.Operation<Integer>() {
+			public Integer run() throws SQLException, IOException {
+				int id=getOrCreateIdFor(urn, type);
+				addNames(id,names,source);
+				if (urn!=null) insertReference(source, urn);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
 	
-	private static int createBaseComponent(int type, URL source, URN urn, String name) throws SQLException, IOException{
+	private static int createBaseComponent(final int type, final URL source, final URN urn, final String name) throws SQLException, IOException{
 		Tools.startMethod("createBaseComponent("+nameForType(type)+", "+source+", "+urn+", '"+name+"')");
-		int id = getOrCreateIdFor(urn, type);
-		addName(id,name,source);
-		if (urn!=null) insertReference(source, urn);
+		int id=Transaction.run(new RetryPolicy.Operation<Integer>() {
+			public Integer run() throws SQLException, IOException {
+				int id=getOrCreateIdFor(urn, type);
+				addName(id,name,source);
+				if (urn!=null) insertReference(source, urn);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
 	
-	private static int createBaseComponent(int type, URL source, Collection<URN>urns, String name) throws SQLException, NoSuchMethodException, IOException{
+	private static int createBaseComponent(final int type, final URL source, final Collection<URN>urns, final String name) throws SQLException, NoSuchMethodException, IOException{
 		Tools.startMethod("createBaseComponent("+nameForType(type)+", "+source+", "+urns+", '"+name+"')");
-		int id = getOrCreateIdFor(urns, type);
-		addName(id,name,source);
-		if (urns!=null && !urns.isEmpty()) insertReferences(source, urns);
+		int id=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int id=getOrCreateIdFor(urns, type);
+				addName(id,name,source);
+				if (urns!=null && !urns.isEmpty()) insertReferences(source, urns);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
@@ -1217,76 +1958,93 @@ public class InteractionDB {
 	 * @param names
 	 * @param newFormula
 	 * @param linkedUrns
-	 * @param sourceOfNewEntry
+ 	 * @param sourceOfNewEntry
+	 * @return the id of the substance. All changes are written in one transaction, which is rolled back, if the creation fails.
 	 * @throws SQLException
  	 * @throws NoSuchMethodException 
  	 * @throws DataFormatException 
  	 * @throws NoTokenException 
  	 * @throws IOException 
 	 */
-	public static int createSubstance(Collection<String> names,Formula newFormula,Collection<URN> linkedUrns, URL sourceOfNewEntry) throws SQLException, NoSuchMethodException, DataFormatException, IOException, NoTokenException{
+	public static int createSubstance(final Collection<String> names,final Formula newFormula,final Collection<URN> linkedUrns, final URL sourceOfNewEntry) throws SQLException, NoSuchMethodException, DataFormatException, IOException, NoTokenException{
 		Tools.startMethod("createSubstance("+names+", "+newFormula+", "+linkedUrns+", "+sourceOfNewEntry+")");
 		
-		int newId=newId(SUBSTANCE);
-		TreeSet<Integer> compatibleIds=new TreeSet<Integer>();
-		Vector<URN> collidingURNs=new Vector<URN>();
-		compatibleIds.add(newId);
-		
+		/* decisions about urns, which are assigned to substances with other formulas, may need the user, so they are made before the transaction is started */
+		TreeMap<URN, Integer> decisionsFinal=new TreeMap<URN, Integer>(ObjectComparator.get());
 		for (URN urnLinkedFromNewEntry : linkedUrns) {
-
-			getOrCreateUid(urnLinkedFromNewEntry);
 	    Integer existingId = readIdFor(urnLinkedFromNewEntry);
-	    
 	    if (existingId != null){ // if there is already an entry for the current urn: check, whether it is compatible
 	    	Formula existingFormula = getFormula(existingId);
 	    	Tools.indent("existing formula: "+existingFormula);
 	    	Tools.indent("new formula: "+newFormula);
-	    	if (newFormula==null || existingFormula==null || newFormula.equals(existingFormula)){
-	    		compatibleIds.add(existingId); // compatible
-	    	} else { // assigned entry has another formula => ask, to which entry the urn shall be assigned
-	    		Integer select=askAndAssignUrn(sourceOfNewEntry, urnLinkedFromNewEntry,newId,newFormula,existingId);
-	    		if (select!=0) collidingURNs.add(urnLinkedFromNewEntry);
+	    	if (newFormula!=null && existingFormula!=null && !newFormula.equals(existingFormula)){ // assigned entry has another formula => ask, to which entry the urn shall be assigned
+	    		decisionsFinal.put(urnLinkedFromNewEntry, decideUrnAssignment(sourceOfNewEntry, urnLinkedFromNewEntry, newFormula, existingId));
 	    	}
 	    }
     }
 		
-		for (URN urn : collidingURNs) linkedUrns.remove(urn);
-		
-		int id = mergeIds(compatibleIds);
-		
-		Tools.indent("id   = "+id);
-		Tools.indent("urns = "+linkedUrns);
-		if (!linkedUrns.isEmpty()){
-			TreeSet<Integer> uids = readUidsFor(linkedUrns);
-		
-			Tools.indent("uids = "+uids);
-			
-			execute("UPDATE urns SET id="+id+" WHERE uid in "+setToDBset(uids)); // sollte bei allen relevanten uids die ids richtig setzen
-		}
-		addNames(id, names, sourceOfNewEntry);
-		if (linkedUrns!=null && !linkedUrns.isEmpty())	insertReferences(sourceOfNewEntry, linkedUrns);
-		
-		
-		
-	 /* TODO:
-	  * an dieser Stelle sollte geprüft werden, ob durch die URNs mehrere Substanzen vereint werden.
-	  * Ist dies der Fall, muss geprüft werden, ob diese Substanzen unterschiedliche Formeln haben.
-	  * Ist dies der Fall, soll abgefragt werden, welcher Substanz die vereinende URN zugewiesen werden soll.
-	  * 
-	  * 
-	  */
-		
-		try {
-			execute("INSERT INTO substances VALUES ("+id+", "+dbString(newFormula)+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
+		final TreeMap<URN, Integer> decisions=decisionsFinal;
+		int id=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				Vector<URN> urns=new Vector<URN>(linkedUrns); // the work may be replayed, so the urns passed in are kept
+				int newId=newId(SUBSTANCE);
+				TreeSet<Integer> compatibleIds=new TreeSet<Integer>();
+				compatibleIds.add(newId);
+				
+				getOrCreateUids(urns); // creates all missing urns with one statement
+				for (URN urnLinkedFromNewEntry : linkedUrns) {
+					Integer existingId = readIdFor(urnLinkedFromNewEntry);
+					if (existingId == null) continue;
+					Integer decision=decisions.get(urnLinkedFromNewEntry);
+					if (decision==null){
+						compatibleIds.add(existingId); // compatible
+					} else {
+						assignUrn(urnLinkedFromNewEntry, newId, decision);
+						if (decision!=ASSIGN_TO_NEW) urns.remove(urnLinkedFromNewEntry);
+					}
+				}
+				
+				int id = mergeIds(compatibleIds);
+				
+				Tools.indent("id   = "+id);
+				Tools.indent("urns = "+urns);
+				if (!urns.isEmpty()){
+					TreeSet<Integer> uids = readUidsFor(urns);
+					
+					Tools.indent("uids = "+uids);
+					
+					update("UPDATE urns SET id=? WHERE uid IN "+placeholders(uids.size()), id, uids); // sollte bei allen relevanten uids die ids richtig setzen
+				}
+				addNames(id, names, sourceOfNewEntry);
+				if (!urns.isEmpty())	insertReferences(sourceOfNewEntry, urns);
+				
+				
+				
+				/* TODO:
+				 * an dieser Stelle sollte geprüft werden, ob durch die URNs mehrere Substanzen vereint werden.
+				 * Ist dies der Fall, muss geprüft werden, ob diese Substanzen unterschiedliche Formeln haben.
+				 * Ist dies der Fall, soll abgefragt werden, welcher Substanz die vereinende URN zugewiesen werden soll.
+				 * 
+				 * 
+				 */
+				
+				insertIgnore("substances", "id, formula", 1, id, newFormula);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
 	
-	private static Integer askAndAssignUrn(URL sourceOfNewEntry, URN urnLinkedFromNewEntry, int idOfNewEntry, Formula newFormula, int idOfExistingSubstance) throws SQLException, IOException, NoTokenException, DataFormatException {
-		Tools.startMethod("askAndAssignUrn("+urnLinkedFromNewEntry+", newId: "+idOfNewEntry+", source: "+sourceOfNewEntry+", present id: "+idOfExistingSubstance+")");
+	/**
+	 * decides, whether an urn, which is assigned to an existing substance, shall be re-assigned to a new substance with another formula.
+	 * The decision is made automatically, if possible. Otherwise it is read from the decisions table or the user is asked.
+	 * As the user may be asked, this must not be called within a transaction.
+	 * 
+	 * @return one of ASSIGN_TO_NEW, ASSIGN_TO_OLD and DEASSIGN
+	 */
+	private static int decideUrnAssignment(URL sourceOfNewEntry, URN urnLinkedFromNewEntry, Formula newFormula, int idOfExistingSubstance) throws SQLException, IOException, NoTokenException, DataFormatException {
+		Tools.startMethod("decideUrnAssignment("+urnLinkedFromNewEntry+", source: "+sourceOfNewEntry+", present id: "+idOfExistingSubstance+")");
 		Collection<URL> oldSourceURLs=getReferencingURLs(urnLinkedFromNewEntry);
 		
 		/* Initialize */
@@ -1329,7 +2087,10 @@ public class InteractionDB {
 		if (decision!=null) addDecision(databaseKey,decision,true);
 		
 		/* if not assigned: try to load from decision database */
-		if (decision==null) decision=getDecision(databaseKey);
+		if (decision==null) {
+			decision=getDecision(databaseKey);
+			if (decision!=null && decision!=DEASSIGN && decision!=ASSIGN_TO_NEW && decision!=ASSIGN_TO_OLD) decision=null; // unknown stored values are asked again
+		}
 		
 		/* if still not assigned (i.e. not in decision database: ask user */
 		if (decision==null){
@@ -1345,7 +2106,7 @@ public class InteractionDB {
 				} catch (InterruptedException e) {  }
 			}
 			decision = JOptionPane.showOptionDialog(null, "To which substance shall the urn ("+urnLinkedFromNewEntry+") be assigned?", "Feedback",JOptionPane.YES_NO_CANCEL_OPTION,  JOptionPane.INFORMATION_MESSAGE, null, new String[]{""+sourceOfNewEntry, ("<html>"+oldSourceURLs).replace("[", "").replace("]", "").replace(", ", "<br>"),"None of them!"},  "default");
-			if (decision==2){
+			if (decision!=ASSIGN_TO_NEW && decision!=ASSIGN_TO_OLD){ // "None of them!" or dialog closed
 				decision=DEASSIGN;
 			}
 			
@@ -1353,50 +2114,43 @@ public class InteractionDB {
 			addDecision(databaseKey, decision, false);
 
 		}
-		if (decision!=null){
-			switch (decision) {
-			case DEASSIGN:
-				execute("UPDATE urns SET id=NULL WHERE urn="+dbString(urnLinkedFromNewEntry)); // de-assign urn from substance
-				break;
-			case ASSIGN_TO_NEW:
-				execute("UPDATE urns SET id="+idOfNewEntry+" WHERE urn="+dbString(urnLinkedFromNewEntry)); // re-assign urn to substance
-				break;
-			case ASSIGN_TO_OLD:	// keep the urn be assigned to the existing id
-				break;
-			default:
-				decision=askAndAssignUrn(sourceOfNewEntry, urnLinkedFromNewEntry, idOfNewEntry, newFormula, idOfExistingSubstance);
-				break;
-			}
-		}
-		Tools.endMethod();
+		Tools.endMethod(decision);
 		return decision;
   }
 	
-	public static void addDecision(String databaseKey, Integer decision, boolean automatic) throws SQLException, IOException {
-		String query="INSERT INTO decisions VALUES ("+dbString(databaseKey)+", "+decision+", "+(automatic?"TRUE":"FALSE")+")";		
-		try {
-			execute(query);
-		} catch (SQLException se){
-			if (!se.getMessage().startsWith("Duplicate key")){
-				System.err.println(query);
-				throw se;
-			}
+	/**
+	 * applies a decision made by decideUrnAssignment
+	 */
+	private static void assignUrn(URN urn, int idOfNewEntry, int decision) throws SQLException, IOException {
+		switch (decision) {
+		case DEASSIGN:
+			update("UPDATE urns SET id=NULL WHERE digest=?", digest(urn)); // de-assign urn from substance
+			break;
+		case ASSIGN_TO_NEW:
+			update("UPDATE urns SET id=? WHERE digest=?", idOfNewEntry, digest(urn)); // re-assign urn to substance
+			break;
+		default:	// keep the urn be assigned to the existing id
+			break;
 		}
+	}
+	
+	/**
+	 * stores a decision, unless a decision for the key exists
+	 * 
+	 * @return 1, if the decision was stored, 0, if there was one already
+	 */
+	public static int addDecision(String databaseKey, Integer decision, boolean automatic) throws SQLException, IOException {
+		return insertIgnore("decisions", "keyphrase, value, autogenerated", 1, databaseKey, decision, automatic);
   }
 
 	public static Integer getDecision(Object databaseKey) throws SQLException, IOException {
-		Integer decision=null;
-		Statement st=createStatement();
-		ResultSet rs=st.executeQuery("SELECT value FROM decisions WHERE keyphrase="+dbString(databaseKey));
-		if (rs.next()) {
-			decision=rs.getInt(1);
+		Integer decision=queryInt("SELECT value FROM decisions WHERE keyphrase=?", databaseKey);
+		if (decision!=null) {
 			System.err.println("Hooray! We used a decision from the local database!");
 			try {
 		    Thread.sleep(20000);
 	    } catch (InterruptedException e) {}
 		}
-		rs.close();
-		st.close();
 		return decision;
   }
 
@@ -1437,60 +2191,68 @@ public class InteractionDB {
 		return urls;
 	}
 
-	public static Integer createSubstance(String name, Object formula, TreeSet<URN> urns, URL source) throws SQLException, NoSuchMethodException, IOException {
+	public static Integer createSubstance(final String name, final Object formula, final TreeSet<URN> urns, final URL source) throws SQLException, NoSuchMethodException, IOException {
 		Tools.startMethod("createSubstance("+name+", "+formula+", "+urns+", "+source+")");
-		int id = createBaseComponent(InteractionDB.SUBSTANCE,source,urns,name);
-				
-		try {
-			execute("INSERT INTO substances VALUES ("+id+", "+dbString(formula)+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
+		int id=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int id=createBaseComponent(InteractionDB.SUBSTANCE,source,urns,name);
+				insertIgnore("substances", "id, formula", 1, id, formula);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
 	
-	public static int createEnzyme(Collection<String> names, String ec, Integer sid, URN urn, URL source) throws SQLException, IOException{
+	public static int createEnzyme(final Collection<String> names, final String ec, final Integer sid, final URN urn, final URL source) throws SQLException, IOException{
 		Tools.startMethod("createEnzyme("+names+", "+ec+", "+sid+", "+urn+", "+source+")");
-		int id=createBaseComponent(InteractionDB.ENZYME,source,urn,names);		
-		try {
-			execute("INSERT INTO enzymes VALUES ("+id+","+dbString(ec)+","+((sid==null)?"NULL":sid)+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
+		int id=Transaction.run(new RetryPolicy.Operation<Integer>() {
+			public Integer run() throws SQLException, IOException {
+				int id=createBaseComponent(InteractionDB.ENZYME,source,urn,names);
+				insertIgnore("enzymes", "id, ec, substance", 1, id, ec, sid);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		return id;
 	}
 
-	public static int createEnzyme(Collection<String> names, String ec, Integer sid, Collection<URN> urns, URL source) throws SQLException, NoSuchMethodException, IOException{
+	public static int createEnzyme(final Collection<String> names, final String ec, final Integer sid, final Collection<URN> urns, final URL source) throws SQLException, NoSuchMethodException, IOException{
 		Tools.startMethod("createEnzyme("+names+", "+ec+", "+sid+", "+urns+", "+source+")");
-		int id=createBaseComponent(InteractionDB.ENZYME,source,urns,names);		
-		try {
-			execute("INSERT INTO enzymes VALUES ("+id+","+dbString(ec)+","+((sid==null)?"NULL":sid)+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
+		int id=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int id=createBaseComponent(InteractionDB.ENZYME,source,urns,names);
+				insertIgnore("enzymes", "id, ec, substance", 1, id, ec, sid);
+				return id;
+			}
+		});
 		Tools.endMethod(id);
 		Tools.indent("");
 		return id;
 	}
 	
-	public static int createCompartment(String name, URN urn, int group, URL source) throws SQLException, IOException {
+	public static int createCompartment(final String name, final URN urn, final int group, final URL source) throws SQLException, IOException {
 		Tools.startMethod("createCompartment("+name+", "+urn+", "+group+", "+source+")");
-		int cid=createBaseComponent(COMPARTMENT, source, urn, name);
-		execute("INSERT INTO compartments VALUES ("+cid+", "+group+")");
+		int cid=Transaction.run(new RetryPolicy.Operation<Integer>() {
+			public Integer run() throws SQLException, IOException {
+				int cid=createBaseComponent(COMPARTMENT, source, urn, name);
+				insertIgnore("compartments", "id, groups", 1, cid, group);
+				return cid;
+			}
+		});
 	  Tools.endMethod(cid);
 		return cid;
   }
 	
-	public static Integer createCompartment(String name, TreeSet<URN> urns, int group, URL source) throws SQLException, NoSuchMethodException, IOException {
+	public static Integer createCompartment(final String name, final TreeSet<URN> urns, final int group, final URL source) throws SQLException, NoSuchMethodException, IOException {
 		Tools.startMethod("createCompartment("+name+", "+urns+", "+group+", "+source+")");
-		int cid=createBaseComponent(COMPARTMENT, source, urns, name);
-		try {
-			execute("INSERT INTO compartments VALUES ("+cid+", "+group+")");
-		} catch (SQLException e) {
-			if (!e.getMessage().contains("Duplicate key")) throw e; 
-		}
+		int cid=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int cid=createBaseComponent(COMPARTMENT, source, urns, name);
+				insertIgnore("compartments", "id, groups", 1, cid, group);
+				return cid;
+			}
+		});
 	  Tools.endMethod(cid);
 		return cid;
   }
@@ -1504,75 +2266,91 @@ public class InteractionDB {
 	
 	public static void setSpontan(int rid, boolean spontan) throws SQLException, IOException{
 		Tools.startMethod("setSpontan(rid="+rid+", "+spontan+")");
-		String query = "SELECT spontan FROM reactions WHERE id=" + rid;
-		Statement st=createStatement();
-		ResultSet rs = st.executeQuery(query);
-		if (rs.next()) {
-			if (rs.getBoolean(1)) { // already marked as spontaneous
-				rs.close();
-			} else {
-				rs.close();
-				st.close();
-				execute("UPDATE reactions SET spontan=" + spontan + " WHERE id=" + rid);
-			}
-		} else {
-			execute("INSERT INTO reactions VALUES (" + rid + ", " + spontan + ")");;
-		}
+		if (insertIgnore("reactions", "id, spontan", 1, rid, spontan)==0 && spontan) update("UPDATE reactions SET spontan=? WHERE id=?", spontan, rid); // a reaction once marked spontaneous stays so
 		Tools.endMethod();
 	}
 	
-	public static int createReaction(TreeSet<String> names, TreeSet<URN> urns, boolean spontan, URL source) throws SQLException, NoSuchMethodException, IOException {
+	public static int createReaction(final TreeSet<String> names, final TreeSet<URN> urns, final boolean spontan, final URL source) throws SQLException, NoSuchMethodException, IOException {
 		Tools.startMethod("createReaction("+names+", "+urns+", spontan="+spontan+", "+source+")");
-		int rid=createBaseComponent(REACTION, source, urns, names);
-		setSpontan(rid, spontan);
+		int rid=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int rid=createBaseComponent(REACTION, source, urns, names);
+				setSpontan(rid, spontan);
+				return rid;
+			}
+		});
 		Tools.endMethod(rid);
 		return rid;
   }
 	
-	public static int createReaction(String name, TreeSet<URN> urns, boolean spontan, URL source) throws SQLException, NoSuchMethodException, IOException {
+	public static int createReaction(final String name, final TreeSet<URN> urns, final boolean spontan, final URL source) throws SQLException, NoSuchMethodException, IOException {
 		Tools.startMethod("createReaction('"+name+"', "+urns+", spontan="+spontan+", "+source+")");
-		int rid=createBaseComponent(REACTION, source, urns, name);
-		setSpontan(rid, spontan);
+		int rid=transactional(new Work<Integer>() {
+			Integer work() throws SQLException, IOException, NoSuchMethodException {
+				int rid=createBaseComponent(REACTION, source, urns, name);
+				setSpontan(rid, spontan);
+				return rid;
+			}
+		});
 		Tools.endMethod(rid);
 		return rid;
   }
 	
-	public static void addSubstrateToReaction(int rid, int sid, int stoich) throws SQLException, IOException {
+	/**
+	 * @return 1, if the substrate was added, 0, if it was already assigned to the reaction or bulk-load mode is active
+	 */
+	public static int addSubstrateToReaction(int rid, int sid, int stoich) throws SQLException, IOException {
 		Tools.startMethod("addSubstrateToReaction(rid="+rid+": "+stoich+"×"+sid+")");
-		try {
-			execute("INSERT INTO substrates VALUES ("+sid+", "+rid+", "+stoich+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
-		Tools.endMethod();	  
+		int result=addReactant("substrates", rid, sid, stoich);
+		Tools.endMethod(result);
+		return result;
   }
 
-	public static void addProductToReaction(int rid, int sid, int stoich) throws SQLException, IOException {
+	/**
+	 * @return 1, if the product was added, 0, if it was already assigned to the reaction or bulk-load mode is active
+	 */
+	public static int addProductToReaction(int rid, int sid, int stoich) throws SQLException, IOException {
 		Tools.startMethod("addProductToReaction(rid="+rid+": "+stoich+"×"+sid+")");
-		try{
-			execute("INSERT INTO products VALUES ("+sid+", "+rid+", "+stoich+")");
-		} catch (SQLException e){
-			if (!e.getMessage().contains("Duplicate key")) throw e;
-		}
-		Tools.endMethod();	  
+		int result=addReactant("products", rid, sid, stoich);
+		Tools.endMethod(result);
+		return result;
   }
+
+	private static int addReactant(String table, int rid, int sid, int stoich) throws SQLException, IOException {
+		BulkLoader loader=bulkLoader();
+		if (loader==null) return insertIgnore(table, "sid, rid, stoich", 2, sid, rid, stoich);
+		loader.add(table, "sid, rid, stoich", 2, false, sid, rid, stoich);
+		return 0;
+	}
+
+	/**
+	 * stores, in which directions a reaction may run in a compartment. Replaces the directions stored before.
+	 * 
+	 * @param rid the reaction
+	 * @param cid the compartment
+	 * @param forward true, if the reaction may run forward
+	 * @param backward true, if the reaction may run backward
+	 * @return the number of affected rows as reported by the database, 0 in bulk-load mode
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static int setReactionDirections(int rid, int cid, boolean forward, boolean backward) throws SQLException, IOException {
+		Tools.startMethod("setReactionDirections(rid="+rid+", cid="+cid+", forward="+forward+", backward="+backward+")");
+		int result=0;
+		BulkLoader loader=bulkLoader();
+		if (loader!=null){
+			loader.add("reaction_directions", "rid, cid, forward, backward", 2, true, rid, cid, forward, backward);
+		} else result=update(dialect().upsert("reaction_directions", "rid, cid, forward, backward", 2), rid, cid, forward, backward);
+		Tools.endMethod(result);
+		return result;
+	}
 	
 	private static TreeSet<Integer> readEnzymeIds(TreeSet<String> ecNumbers) throws SQLException, IOException {
 		Tools.startMethod("readEnzymeIds("+ecNumbers+")");
-		String query = "SELECT id FROM enzymes WHERE ec IN " + ecNumbers.toString().replace("[", "(\"").replace("]", "\")").replace(",", "\",\"");
-		try {
-			Statement st=createStatement();
-			ResultSet rs=st.executeQuery(query);
-			TreeSet<Integer> eids=new TreeSet<Integer>();
-			while (rs.next()) eids.add(rs.getInt(1));
-			rs.close();
-			st.close();
-			Tools.endMethod(eids);
-			return eids;
-		} catch (SQLException e){
-			System.err.println(query);
-			throw e;
-		}
+		TreeSet<Integer> eids=new TreeSet<Integer>();
+		if (!ecNumbers.isEmpty()) queryIds(eids, "SELECT id FROM enzymes WHERE ec IN " + placeholders(ecNumbers.size()), ecNumbers);
+		Tools.endMethod(eids);
+		return eids;
   }
 	
 	public static int getOrCreateGroup(String category) throws SQLException, IOException {
@@ -1583,131 +2361,185 @@ public class InteractionDB {
 		return result; 		
   }
 	
+	/**
+	 * reads the formula of a substance. The formulas read are kept in the formula cache. The cache holds the formula codes,
+	 * as callers may alter the Formula objects returned (e.g. deriveFormulaFromKCF sums up the formulas of glycan nodes).
+	 */
 	public static Formula getFormula(int id) throws SQLException, DataFormatException, IOException {
 		Tools.startMethod("getFormula("+id+")");
-		String query = "SELECT formula FROM substances WHERE id=" + id;
-		Tools.indent(query);
-		try {
-			Statement s = createStatement();
-			ResultSet r = s.executeQuery(query);
-			Formula result=null;
-			if (r.next()) {
-				String dummy=r.getString(1);
-				if (dummy!=null) result = new Formula(dummy);
-			}
-			Tools.endMethod(result);
-			return result;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
+		LruCache<Integer, String> cache=formulaCache();
+		String formula=cache.get(id);
+		if (formula==null) {
+			formula=queryString("SELECT formula FROM substances WHERE id=?", id);
+			Transaction.cache(cache, id, formula);
 		}
+		Formula result=(formula==null)?null:new Formula(formula);
+		Tools.endMethod(result);
+		return result;
 	}
 	
 	public static TreeMap<Integer, Integer> loadProducts(int id) throws SQLException, IOException {
-		Tools.startMethod("loadProducts("+id+")");
-		String query = "SELECT sid,stoich FROM products WHERE rid=" + id;
-		try {
-			Statement st = InteractionDB.createStatement();
-			ResultSet rs = st.executeQuery(query);
-			TreeMap<Integer, Integer> products = new TreeMap<Integer, Integer>();
-			while (rs.next())	products.put(rs.getInt(1), rs.getInt(2));
-			rs.close();
-			st.close();
-			Tools.endMethod(products);
-			return products;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
+		return loadProductsAsIntMap(id).addTo(new TreeMap<Integer, Integer>());
+	}
+
+	/**
+	 * @return the products of the reaction mapped to their stoichiometric coefficients
+	 */
+	public static IntMap loadProductsAsIntMap(int id) throws SQLException, IOException {
+		Tools.startMethod("loadProductsAsIntMap("+id+")");
+		IntMap.Builder products = new IntMap.Builder();
+		query(new StoichiometryCollector(products), "SELECT sid,stoich FROM products WHERE rid=?", id);
+		IntMap result=products.build();
+		Tools.endMethod(result);
+		return result;
+	}
+
+	public static TreeMap<Integer, Integer> loadSubstrates(int id) throws SQLException, IOException {
+		return loadSubstratesAsIntMap(id).addTo(new TreeMap<Integer, Integer>());
+	}
+
+	/**
+	 * @return the substrates of the reaction mapped to their stoichiometric coefficients
+	 */
+	public static IntMap loadSubstratesAsIntMap(int id) throws SQLException, IOException {
+		Tools.startMethod("loadSubstratesAsIntMap("+id+")");
+		IntMap.Builder substrates = new IntMap.Builder();
+		query(new StoichiometryCollector(substrates), "SELECT sid,stoich FROM substrates WHERE rid=?", id);
+		IntMap result=substrates.build();
+		Tools.endMethod(result);
+		return result;
+	}
+	
+	/**
+	 * loads the substrates and products of several reactions at once, using one query per table and chunk of CHUNK_SIZE reaction ids
+	 * instead of two queries per reaction.
+	 * 
+	 * @param rids the ids of the reactions
+	 * @return the stoichiometries of the reactions
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static Stoichiometries loadReactions(Collection<Integer> rids) throws SQLException, IOException {
+		Tools.startMethod("loadReactions("+rids.size()+" reactions)");
+		final Stoichiometries.Builder builder=new Stoichiometries.Builder(rids);
+		for (Vector<Integer> chunk:chunks(new TreeSet<Integer>(rids))){
+			query(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					builder.addSubstrate(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+				}
+			}, "SELECT rid, sid, stoich FROM substrates WHERE rid IN "+placeholders(chunk.size()), chunk);
+			query(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					builder.addProduct(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+				}
+			}, "SELECT rid, sid, stoich FROM products WHERE rid IN "+placeholders(chunk.size()), chunk);
 		}
+		Stoichiometries result=builder.build();
+		Tools.endMethod(result);
+		return result;
 	}
+	
+	/**
+	 * collects (sid, stoich) rows into a map
+	 */
+	private static class StoichiometryCollector implements RowHandler {
+		private IntMap.Builder map;
 
-	public static TreeMap<Integer, Integer> loadSubstrates(int id) throws SQLException, IOException {		
-		Tools.startMethod("loadSubstrates("+id+")");
-		String query = "SELECT sid,stoich FROM substrates WHERE rid=" + id;
-		try {
-			TreeMap<Integer, Integer> set = new TreeMap<Integer, Integer>();
-			Statement st = InteractionDB.createStatement();
-			ResultSet rs = st.executeQuery(query);
-			while (rs.next())
-				set.put(rs.getInt(1), rs.getInt(2));
-			rs.close();
-			st.close();
-			Tools.endMethod(set);
-			return set;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
+		private StoichiometryCollector(IntMap.Builder map) {
+			this.map=map;
+		}
+
+		public void handle(ResultSet rs) throws SQLException {
+			map.put(rs.getInt(1), rs.getInt(2));
 		}
 	}
 	
 	public static byte readDirections(int cid, int rid) throws SQLException, IOException {
 		Tools.startMethod("readDirections(cid: "+cid+", rid: "+rid+")");
-		String query = "SELECT forward,backward FROM reaction_directions WHERE cid=" + cid + " AND rid=" + rid;
-		try {
-			Statement st = createStatement();
-			ResultSet rs = st.executeQuery(query);
-			byte dir = 0;
-			if (rs.next()) {
-				if (rs.getBoolean(1)) dir += Reaction.FORWARD; // if forward flag set: save "+1" (forward)
-				if (rs.getBoolean(2)) dir += Reaction.BACKWARD; // if backward flag set: save "-1" (backward)
-			}
-			rs.close();
-			st.close();
-			Tools.endMethod(dir);
-			return dir;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		final byte[] dir = {0};
+		query(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				if (dir[0]!=0) return;
+				if (rs.getBoolean(1)) dir[0] += Reaction.FORWARD; // if forward flag set: save "+1" (forward)
+				if (rs.getBoolean(2)) dir[0] += Reaction.BACKWARD; // if backward flag set: save "-1" (backward)
+			}
+		}, "SELECT forward,backward FROM reaction_directions WHERE cid=? AND rid=?", cid, rid);
+		Tools.endMethod(dir[0]);
+		return dir[0];
 	}
 	
 	public static TreeSet<Integer> loadEnzymesOfCompartment(int cid) throws SQLException, IOException {
-		Tools.startMethod("loadEnzymesOfCompartment("+cid+")");
-		String query = "SELECT eid FROM enzymes_compartments WHERE cid="+cid;
-		try {
-			Statement st = InteractionDB.createStatement();
-			TreeSet<Integer> enzymes = new TreeSet<Integer>();
-			ResultSet rs = st.executeQuery(query);
-			while (rs.next())
-				enzymes.add(rs.getInt(1));
-			rs.close();
-			st.close();
-			Tools.endMethod(enzymes);
-			return enzymes;
-		} catch (SQLException e) {
-			System.err.println(query);
-			throw e;
-		}
+		return loadEnzymesOfCompartmentAsIntSet(cid).addTo(new TreeSet<Integer>());
+	}
+	
+	public static IntSet loadEnzymesOfCompartmentAsIntSet(int cid) throws SQLException, IOException {
+		Tools.startMethod("loadEnzymesOfCompartmentAsIntSet("+cid+")");
+		IntSet enzymes = queryIntSet("SELECT eid FROM enzymes_compartments WHERE cid=?", cid);
+		Tools.endMethod(enzymes);
+		return enzymes;
+	}
+	
+	/** flag of spontaneous reactions, stored above the direction bits by loadCompartmentNetwork */
+	private static final int SPONTANEOUS = 0x100;
+
+	/**
+	 * loads the reaction network of a compartment with three joined queries, instead of querying enzymes, reactions, stoichiometries and directions one by one.
+	 * The results are streamed into primitive arrays.
+	 * 
+	 * @param cid the compartment
+	 * @return the reactions catalyzed by the enzymes of the compartment, their directions and the substances they act on
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static CompartmentNetwork loadCompartmentNetwork(int cid) throws SQLException, IOException {
+		Tools.startMethod("loadCompartmentNetwork("+cid+")");
+		String reactionsOfCompartment=" FROM enzymes_compartments ec JOIN reaction_enzymes re ON re.eid=ec.eid";
+		final IntMap.Builder flags=new IntMap.Builder(); // direction in the lower byte, SPONTANEOUS set for spontaneous reactions
+		stream(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				int flag=0;
+				if (rs.getBoolean(3)) flag += Reaction.FORWARD;
+				if (rs.getBoolean(4)) flag += Reaction.BACKWARD;
+				if (rs.getBoolean(2)) flag |= SPONTANEOUS;
+				flags.put(rs.getInt(1), flag);
+			}
+		}, "SELECT DISTINCT re.rid, r.spontan, d.forward, d.backward"+reactionsOfCompartment+" LEFT JOIN reactions r ON r.id=re.rid LEFT JOIN reaction_directions d ON d.rid=re.rid AND d.cid=ec.cid WHERE ec.cid=?", cid);
+		IntMap reactions=flags.build();
+		final Stoichiometries.Builder builder=new Stoichiometries.Builder(reactions.keys());
+		stream(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				builder.addSubstrate(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+			}
+		}, "SELECT DISTINCT s.rid, s.sid, s.stoich"+reactionsOfCompartment+" JOIN substrates s ON s.rid=re.rid WHERE ec.cid=?", cid);
+		stream(new RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				builder.addProduct(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+			}
+		}, "SELECT DISTINCT p.rid, p.sid, p.stoich"+reactionsOfCompartment+" JOIN products p ON p.rid=re.rid WHERE ec.cid=?", cid);
+		byte[] dirs=new byte[reactions.size()];
+		boolean[] spontan=new boolean[reactions.size()];
+		for (int i=0; i<reactions.size(); i++){ // the keys are sorted like the reaction ids in the builder
+			dirs[i]=(byte) (reactions.valueAt(i) & 0xff);
+			spontan[i]=(reactions.valueAt(i) & SPONTANEOUS)!=0;
+		}
+		CompartmentNetwork result=new CompartmentNetwork(cid, builder.build(), dirs, spontan);
+		Tools.endMethod(result);
+		return result;
 	}
 	
 	public static TreeSet<Integer> getSpontaneousReactionsActingOn(TreeSet<Integer> sids) throws SQLException, IOException {
-		Tools.startMethod("getSpontaneousReactionsActingOn("+sids+")");
-		String query = null;
-		try {
-			Statement st = createStatement();
-			TreeSet<Integer> reactions = new TreeSet<Integer>();
-			if (sids.isEmpty()) {
-				Tools.endMethod(reactions);
-				return reactions;
-			}
-			query = "SELECT rid FROM substrates WHERE sid IN " + sids.toString().replace("[", "(").replace("]", ")") + " AND rid IN (SELECT id FROM reactions WHERE spontan)";
-			// System.out.println(query);
-			ResultSet rs = st.executeQuery(query);
-			while (rs.next())
-				reactions.add(rs.getInt(1));
-			query = "SELECT rid FROM products WHERE sid IN " + sids.toString().replace("[", "(").replace("]", ")") + " AND rid IN (SELECT id FROM reactions WHERE spontan)";
-			// System.out.println(query);
-			rs = st.executeQuery(query);
-			while (rs.next())
-				reactions.add(rs.getInt(1));
-			rs.close();
-			st.close();
-			Tools.endMethod(reactions);
-			return reactions;
-		} catch (SQLException e) {
-			System.err.println("Error on " + query);
-			throw e;
+		return getSpontaneousReactionsActingOnAsIntSet(sids).addTo(new TreeSet<Integer>());
+	}
+	
+	public static IntSet getSpontaneousReactionsActingOnAsIntSet(Collection<Integer> sids) throws SQLException, IOException {
+		Tools.startMethod("getSpontaneousReactionsActingOnAsIntSet("+sids+")");
+		IntSet reactions = IntSet.EMPTY;
+		if (!sids.isEmpty()) {
+			reactions = queryIntSet("SELECT rid FROM substrates WHERE sid IN " + placeholders(sids.size()) + " AND rid IN (SELECT id FROM reactions WHERE spontan)" +
+					" UNION SELECT rid FROM products WHERE sid IN " + placeholders(sids.size()) + " AND rid IN (SELECT id FROM reactions WHERE spontan)", sids, sids);
 		}
+		Tools.endMethod(reactions);
+		return reactions;
 	}
 	
 //******** organism components ***********************************
@@ -1718,19 +2550,27 @@ public class InteractionDB {
 
 	public static TreeSet<Integer> getCompartmentGroupIds() throws IOException {
 		Tools.startMethod("getCompartmentGroupIds()");
-		String query="SELECT DISTINCT groups FROM compartments";
-		TreeSet<Integer> result = new TreeSet<Integer>();
+		final TreeSet<Integer> result = new TreeSet<Integer>();
 		try {
-			Statement st=createStatement();
-			ResultSet rs=st.executeQuery(query);
-			while (rs.next())	result.add(rs.getInt(1));
-		} catch (SQLException e){
-			System.err.println(query);
-		}
+			stream(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					result.add(rs.getInt(1));
+				}
+			}, "SELECT DISTINCT groups FROM compartments");
+		} catch (SQLException e){}
 		Tools.endMethod(result);
 		return result;
   }
 
+	/**
+	 * @return a cursor over the ids of the compartment groups, which has to be closed, unless it is read to its end
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static Cursor<Integer> cursorOfCompartmentGroupIds() throws SQLException, IOException {
+		return cursor(FIRST_INT, "SELECT DISTINCT groups FROM compartments");
+	}
+
 	/**
 	 * reads the ids of those substances, which have multiple urls assigned
 	 * @return vector of ids
@@ -1738,42 +2578,39 @@ public class InteractionDB {
 	 * @throws IOException 
 	 */
 	public static Vector<Integer> getIdsOfSubstancesWithMultipleReferencingURLs() throws SQLException, IOException {
-		Tools.startMethod("getIdsOfSubstancesWithMultipleReferencingURLs()");
-		String query="SELECT id FROM ids NATURAL JOIN urns NATURAL JOIN urn_urls WHERE type="+SUBSTANCE+" GROUP BY id HAVING COUNT(DISTINCT lid)>1";
-		try {
-			Statement st=createStatement();
-	    ResultSet rs=st.executeQuery(query);
-	    Vector<Integer> result=new Vector<Integer>();
-	    while (rs.next()) result.add(rs.getInt(1));
-	    rs.close();
-	    st.close();
-	    Tools.endMethod(result);
-		  return result;
-    } catch (SQLException e) {
-    	System.err.println(query);
-	    throw e;
-    }
+		return getIdsOfSubstancesWithMultipleReferencingURLsAsIntSet().addTo(new Vector<Integer>());
   }
 
+	public static IntSet getIdsOfSubstancesWithMultipleReferencingURLsAsIntSet() throws SQLException, IOException {
+		Tools.startMethod("getIdsOfSubstancesWithMultipleReferencingURLsAsIntSet()");
+		IntSet result=streamIntSet(SUBSTANCES_WITH_MULTIPLE_URLS, SUBSTANCE);
+		Tools.endMethod(result);
+		return result;
+	}
+
+	private static final String SUBSTANCES_WITH_MULTIPLE_URLS="SELECT ids.id FROM ids JOIN urns ON urns.id=ids.id JOIN urn_urls ON urn_urls.uid=urns.uid WHERE ids.type=? GROUP BY ids.id HAVING COUNT(DISTINCT urn_urls.lid)>1";
+
+	/**
+	 * @return a cursor over the ids of those substances, which have multiple urls assigned. It has to be closed, unless it is read to its end.
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static Cursor<Integer> cursorOfIdsOfSubstancesWithMultipleReferencingURLs() throws SQLException, IOException {
+		return cursor(FIRST_INT, SUBSTANCES_WITH_MULTIPLE_URLS, SUBSTANCE);
+	}
+
 	public static void setDateMark(String string) throws SQLException, IOException {
 		Tools.startMethod("setDateMark("+string+")");
 		SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
 		String date=df.format(new Date());
-		String query="INSERT INTO dates VALUES (0,'"+date+"' ,"+dbString(string)+")";
-		execute(query);
+		execute("INSERT INTO dates(date, description) VALUES (?, ?)", date, string);
 		Tools.endMethod();
   }
 
 	public static Formula getGlycanFormula(String key) throws DataFormatException, SQLException, IOException {
 		Tools.startMethod("getGlycanFormula("+key+")");
-		String query="SELECT id FROM abbrevations WHERE abbr="+dbString(key);
-		Statement st = createStatement();
-		ResultSet rs=st.executeQuery(query);
-		Formula result=null;
-		if (rs.next()){
-			int id=rs.getInt(1);
-			result=getFormula(id);
-		}
+		Integer id=queryInt("SELECT id FROM abbrevations WHERE abbr=?", key);
+		Formula result=(id==null)?null:getFormula(id);
 		if (result==null) Tools.warn("Can not resolve "+key);
 		Tools.endMethod(result);
 		return result;
@@ -1782,10 +2619,10 @@ public class InteractionDB {
 
 	public static void createAbbrevation(String code, String keggId) throws DataFormatException, SQLException, IOException {
 		if (!keggId.startsWith("C")) throw new DataFormatException("Expected Kegg Compound id, found "+keggId+" instead.");
+		Tools.startMethod("createAbbrevation("+code+", "+keggId+")");
  		int aid=getOrCreateIdFor(new KeggCompoundUrn(keggId), SUBSTANCE);
-		String query="INSERT INTO abbrevations VALUES ("+dbString(code)+", "+aid+")";
-		System.out.println(query);
-		execute(query);
+		int inserted=insertIgnore("abbrevations", "abbr, id", 1, code, aid);
+		Tools.endMethod(inserted);
   }
 	
 	public static Formula deriveFormulaFromKCF(URL url) throws IOException, DataFormatException, SQLException {
@@ -1837,15 +2674,37 @@ public class InteractionDB {
 	  return sum;
   }
 	
+	/**
+	 * reads the formula from a web page. Pages, that have been read before, are not fetched again, as long as their entries in the scraped formula cache have not expired.
+	 */
 	public static Formula getFormulaFrom(URL url) throws IOException, NoTokenException, DataFormatException, SQLException {
 		Tools.startMethod("getFormulaFrom("+url+")");
-		String formulaCode=null;		
-		if (formulaMap.containsKey(url)){
-		  Formula formula=formulaMap.get(url);
-			Tools.endMethod(formula);
-//			Tools.disableLogging();
-		  return formula;
+		ScrapedFormulaCache cache=scrapedFormulaCache();
+		String formulaCode=cache.get(url);
+		boolean cached=formulaCode!=null;
+		if (!cached) formulaCode=scrapeFormulaCode(url);
+		if (formulaCode!=null && (formulaCode.equals("-") || formulaCode.equals(""))) {
+			formulaCode=null;
+		} 
+		Formula result=null;
+		try {
+			if (formulaCode!=null) result=new Formula(formulaCode);
+		} catch (DataFormatException dfe){
+			System.err.println(dfe.getMessage());
+			throw new DataFormatException("@ "+url);
 		}
+		if (!cached) cache.put(url, formulaCode);
+		Tools.endMethod(result);
+	  return result;
+  }
+
+	/**
+	 * fetches a web page and extracts the formula code, using the parser matching the url
+	 * 
+	 * @return the formula code or null, if the page contains no formula
+	 */
+	private static String scrapeFormulaCode(URL url) throws IOException, NoTokenException, DataFormatException, SQLException {
+		String formulaCode=null;		
 		if (url.toString().contains("http://rest.kegg.jp/get")) {
 			formulaCode=getFormulaCodeFromKeggApi(url);
 		} else if (url.toString().contains("genome.jp/dbget-bin/www_bget?")) {
@@ -1900,19 +2759,7 @@ public class InteractionDB {
 				throw new UnknownFormatConversionException(url+" contains string FORMEL:\n"+code.substring(pos,pos+50));
 			}
 		}
-		if (formulaCode!=null && (formulaCode.equals("-") || formulaCode.equals(""))) {
-			formulaCode=null;
-		} 
-		Formula result=null;
-		try {
-			if (formulaCode!=null) result=new Formula(formulaCode);
-		} catch (DataFormatException dfe){
-			System.err.println(dfe.getMessage());
-			throw new DataFormatException("@ "+url);
-		}
-		formulaMap.put(url, result);
-		Tools.endMethod(result);
-	  return result;
+		return formulaCode;
   }
 	
 	private static String getFormulaCodeFromEbi(URL url) throws IOException {
@@ -2503,35 +3350,31 @@ public class InteractionDB {
   	
   	public static void printMissingAbbrevations() throws SQLException, IOException{
   		System.out.println("unresolved abbrevations:");
-  		Statement st=createStatement();
-  		for (String abbrevation:unresolvedAbbrevations){
-  			String query="SELECT DISTINCT urn FROM id_names NATURAL JOIN names NATURAL JOIN urns WHERE name="+dbString(abbrevation)+" AND urn like '%kegg%'";
-  			try {
-  			ResultSet rs=st.executeQuery(query);
-  				if (rs.next()){
-  					System.out.println(abbrevation);
-  					System.out.println("...may belong to "+rs.getString(1));
-  					while (rs.next())	System.out.println("...may belong to "+rs.getString(1));
-  			}
-  			rs.close();
-  			} catch (SQLException e){
-  				Tools.warn("Error on "+query);
-  				throw e;
-  			}
+  		Vector<String> abbrevations;
+  		synchronized (unresolvedAbbrevations) {
+  			abbrevations=new Vector<String>(unresolvedAbbrevations);
+  		}
+  		for (String abbrevation:abbrevations){
+  			Vector<String> urns=queryStrings(new Vector<String>(), "SELECT DISTINCT urn FROM id_names JOIN urns ON urns.id=id_names.id WHERE id_names.nid IN (SELECT nid FROM names WHERE digest=?) AND urn like '%kegg%'", digest(abbrevation));
+  			if (!urns.isEmpty()) System.out.println(abbrevation);
+  			for (String urn:urns) System.out.println("...may belong to "+urn);
   		}
-  		st.close();
   	}
 
 		public static TreeMap<URN, TreeSet<URL>> getDecisionsForKeggUrls() throws SQLException, DataFormatException, IOException {
 			Tools.startMethod("getDecisionsForKeggUrls()");
 			String query="SELECT keyphrase FROM decisions WHERE keyphrase like '%:kegg.%'";
 			TreeMap<URN,TreeSet<URL>> map=new TreeMap<URN, TreeSet<URL>>(ObjectComparator.get());
+			Cursor<String> keyphrases;
 			try {
-				Statement st=createStatement(); // read the keyphrases
-				ResultSet rs=st.executeQuery(query);
-				while (rs.next()){ // for each keyphrase:
+				keyphrases=cursor(FIRST_STRING, query); // read the keyphrases row by row
+			} catch (SQLException e) {
+				throw new SQLException(e.getMessage()+"\n\nQuery was: "+query, e.getSQLState(), e.getErrorCode(), e);
+			}
+			try {
+				while (keyphrases.hasNext()){ // for each keyphrase:
+					String key=keyphrases.next();
 					TreeSet<URL> urls=Tools.URLSet();
-					String key=rs.getString(1);
 					String[] parts = key.replace("[", "").replace("]", "").split("<|>|,"); // split into parts
 					KeggUrn urn=null;
 					for (String part:parts) {
@@ -2544,8 +3387,11 @@ public class InteractionDB {
 					if (dummy!=null) urls.addAll(dummy); // add the urls already assigned with the urn to the current list
 					map.put(urn, urls); // assign the urn with the current list
 				}
-			} catch (SQLException e) {
-				throw new SQLException(e.getMessage()+"\n\nQuery was: "+query);
+			} catch (IllegalStateException e) { // the cursor wraps read failures
+				if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+				throw e;
+			} finally {
+				keyphrases.close();
 			}
 			Tools.endMethod(map);
 			return map;
@@ -2561,102 +3407,74 @@ public class InteractionDB {
 
 		public static void storeIDrange(String rangeName, Integer firstKeggId, Integer lastKeggId) throws SQLException, IOException {
 			int rangeNameId = getOrCreateNid(rangeName);
-			String query="INSERT INTO id_ranges VALUES ("+rangeNameId+", "+firstKeggId+", "+lastKeggId+");";
-			execute(query);
+			execute("INSERT INTO id_ranges VALUES (?, ?, ?)", rangeNameId, firstKeggId, lastKeggId);
 			System.out.println(rangeName + ": " + firstKeggId+"..."+lastKeggId);
 
     }
 
 		public static int[] getRange(String name) throws SQLException, IOException {
 			int nameId=getOrCreateNid(name);
-			String query="SELECT min,max FROM id_ranges WHERE nid="+nameId+";";
-			int[] result=new int[2];			
-			try {
-				ResultSet rs=createStatement().executeQuery(query);
-				if (rs.next()){
+			final int[] result=new int[2];			
+			query(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
 					result[0]=rs.getInt(1);
 					result[1]=rs.getInt(2);
 				}
-				rs.close();
-			} catch (SQLException e) {
-				System.err.println(query);
-				throw e;
-			}
+			}, "SELECT min,max FROM id_ranges WHERE nid=?", nameId);
 			return result;
     }
 		
 		/**
-		 * removes all content, which contains ids larger than the given one, from the database
+		 * removes all content, which refers to ids between the given ones, from the database. See RangePurge.
 		 * 
-		 * @param keggRange the last id, which will be not deleted
+		 * @param keggRange the ids bounding the range, which are not deleted
 		 * 
 		 * @throws SQLException
 		 * @throws IOException 
 		 */
 		public static void cleanDb(int[] keggRange) throws SQLException, IOException {
 			if (keggRange[0]==keggRange[1]) return;
-			int min=Math.min(keggRange[0], keggRange[1]);
-			int max=Math.max(keggRange[0], keggRange[1]);
-			Statement st = InteractionDB.createStatement();
-			Vector<String> queries = new Vector<String>();
-			queries.add("DELETE FROM compartment_pathways WHERE cid>" + min + " AND cid<"+max);
-			queries.add("DELETE FROM compartment_pathways WHERE pid>" + min + " AND pid<"+max);
-			queries.add("DELETE FROM compartments WHERE id>" + min + " AND id<"+max);
-			queries.add("DELETE FROM enzymes WHERE id>" + min + " AND id<"+max);
-			queries.add("DELETE FROM enzymes_compartments WHERE cid>" + min + " AND cid<"+max); 
-			queries.add("DELETE FROM enzymes_compartments WHERE eid>" + min + " AND cid<"+max);
-			queries.add("DELETE FROM hierarchy WHERE contained>" + min + " AND contained<"+max);
-			queries.add("DELETE FROM hierarchy WHERE container>" + min + " AND container<"+max);
-			queries.add("DELETE FROM ids WHERE id>" + min + " AND id<"+max);
-			queries.add("DELETE FROM products WHERE sid>" + min + " AND sid<"+max);
-			queries.add("DELETE FROM products WHERE rid>" + min + " AND rid<"+max);
-			queries.add("DELETE FROM reaction_directions WHERE rid>" + min + " AND rid<"+max);
-			queries.add("DELETE FROM reaction_directions WHERE cid>" + min + " AND cid<"+max);
-			queries.add("DELETE FROM reaction_enzymes WHERE rid>" + min + " AND rid<"+max);
-			queries.add("DELETE FROM reaction_enzymes WHERE eid>" + min + " AND eid<"+max);
-			queries.add("DELETE FROM reactions WHERE id>" + min + " AND id<"+max);
-			queries.add("DELETE FROM substances WHERE id>" + min + " AND id<"+max);
-			queries.add("DELETE FROM substrates WHERE sid>" + min + " AND sid<"+max);
-			queries.add("DELETE FROM substrates WHERE rid>" + min + " AND rid<"+max);
-			queries.add("DELETE FROM urns WHERE id>" + min + " AND id<"+max);
+			RangePurge purge=new RangePurge(keggRange[0], keggRange[1]);
 			try {
-				while (!queries.isEmpty()) {
-					System.out.println("executing " + queries.firstElement());
-					st.execute(queries.firstElement());
-					queries.remove(0);
-				}
-			} catch (SQLException e) {
-				System.err.println(queries.firstElement());
-				throw e;
+				purge.run();
+			} finally {
+				System.out.println(purge);
+				urnCache().clear(); // uids of deleted urns must not be served from the cache
+				formulaCache().clear();
 			}
 		}
 
 		public static void cleanNames() throws SQLException, IOException {
-	    execute("delete id_names.* from urns natural join id_names natural join names where urn like 'urn:miriam:kegg%' and substring(urn,-6)=name");	    
+	    execute(dialect().deleteJoined("id_names", "id, nid, lid", "urns JOIN id_names ON id_names.id=urns.id JOIN names ON names.nid=id_names.nid", "urn LIKE 'urn:miriam:kegg%' AND RIGHT(urn,6)=name"));
     }
 
 		public static TreeSet<Integer> getReactionsFor(TreeSet<Integer> listed) throws SQLException, IOException {			
+			return getReactionsForAsIntSet(listed).addTo(new TreeSet<Integer>());
+	  }
+
+		/**
+		 * @param listed substance ids
+		 * @return the reactions, whose substrates and products are all contained in the list
+		 */
+		public static IntSet getReactionsForAsIntSet(Collection<Integer> listed) throws SQLException, IOException {			
 			String query="SELECT subs.rid"+
 									" FROM (SELECT rid,sid" +
 									"       FROM substrates"+
 									"       UNION SELECT rid,sid" +
 									"       FROM products) AS subs" +
-									" WHERE subs.sid in "+setToDBset(listed)+
+									" WHERE subs.sid in "+placeholders(listed.size())+
 									" GROUP BY subs.rid"+
-									" HAVING COUNT(*) ="+listed.size();
-			ResultSet rs=createStatement().executeQuery(query);
-			
-			TreeSet<Integer> result=new TreeSet<Integer>();
-			while (rs.next())	result.add(rs.getInt(1));
-		  return result;
+									" HAVING COUNT(*) =?";
+			return queryIntSet(query, listed, listed.size());
 	  }
 
 		public static Boolean isSpontan(int rid) throws SQLException, IOException {
-			String query="SELECT spontan FROM reactions WHERE id="+rid;
-			ResultSet rs=createStatement().executeQuery(query);
-			if (rs.next()){
-				return rs.getBoolean(1);
-			}
-	    return null;
+			final Boolean[] result={null};
+			query(new RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					if (result[0]==null) result[0]=rs.getBoolean(1);
+				}
+			}, "SELECT spontan FROM reactions WHERE id=?", rid);
+	    return result[0];
     }
 }
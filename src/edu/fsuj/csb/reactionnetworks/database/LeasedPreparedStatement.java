@@ -0,0 +1,268 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * a prepared statement on a connection leased from the ConnectionPool, see LeasedStatement
+ */
+class LeasedPreparedStatement extends LeasedStatement implements PreparedStatement {
+
+	private final PreparedStatement prepared;
+
+	LeasedPreparedStatement(PreparedStatement prepared, ConnectionPool.Lease lease) {
+		super(prepared, lease);
+		this.prepared = prepared;
+	}
+
+	public void addBatch() throws SQLException {
+		prepared.addBatch();
+	}
+
+	public void clearParameters() throws SQLException {
+		prepared.clearParameters();
+	}
+
+	public boolean execute() throws SQLException {
+		try {
+			return prepared.execute();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public ResultSet executeQuery() throws SQLException {
+		try {
+			return wrap(prepared.executeQuery());
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int executeUpdate() throws SQLException {
+		try {
+			return prepared.executeUpdate();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return prepared.getMetaData();
+	}
+
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		return prepared.getParameterMetaData();
+	}
+
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+		prepared.setArray(parameterIndex, x);
+	}
+
+	public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+		prepared.setAsciiStream(parameterIndex, x);
+	}
+
+	public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		prepared.setAsciiStream(parameterIndex, x, length);
+	}
+
+	public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		prepared.setAsciiStream(parameterIndex, x, length);
+	}
+
+	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+		prepared.setBigDecimal(parameterIndex, x);
+	}
+
+	public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+		prepared.setBinaryStream(parameterIndex, x);
+	}
+
+	public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		prepared.setBinaryStream(parameterIndex, x, length);
+	}
+
+	public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		prepared.setBinaryStream(parameterIndex, x, length);
+	}
+
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		prepared.setBlob(parameterIndex, x);
+	}
+
+	public void setBlob(int parameterIndex, InputStream x) throws SQLException {
+		prepared.setBlob(parameterIndex, x);
+	}
+
+	public void setBlob(int parameterIndex, InputStream x, long length) throws SQLException {
+		prepared.setBlob(parameterIndex, x, length);
+	}
+
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		prepared.setBoolean(parameterIndex, x);
+	}
+
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+		prepared.setByte(parameterIndex, x);
+	}
+
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		prepared.setBytes(parameterIndex, x);
+	}
+
+	public void setCharacterStream(int parameterIndex, Reader x) throws SQLException {
+		prepared.setCharacterStream(parameterIndex, x);
+	}
+
+	public void setCharacterStream(int parameterIndex, Reader x, int length) throws SQLException {
+		prepared.setCharacterStream(parameterIndex, x, length);
+	}
+
+	public void setCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+		prepared.setCharacterStream(parameterIndex, x, length);
+	}
+
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		prepared.setClob(parameterIndex, x);
+	}
+
+	public void setClob(int parameterIndex, Reader x) throws SQLException {
+		prepared.setClob(parameterIndex, x);
+	}
+
+	public void setClob(int parameterIndex, Reader x, long length) throws SQLException {
+		prepared.setClob(parameterIndex, x, length);
+	}
+
+	public void setDate(int parameterIndex, Date x) throws SQLException {
+		prepared.setDate(parameterIndex, x);
+	}
+
+	public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+		prepared.setDate(parameterIndex, x, cal);
+	}
+
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+		prepared.setDouble(parameterIndex, x);
+	}
+
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+		prepared.setFloat(parameterIndex, x);
+	}
+
+	public void setInt(int parameterIndex, int x) throws SQLException {
+		prepared.setInt(parameterIndex, x);
+	}
+
+	public void setLong(int parameterIndex, long x) throws SQLException {
+		prepared.setLong(parameterIndex, x);
+	}
+
+	public void setNCharacterStream(int parameterIndex, Reader x) throws SQLException {
+		prepared.setNCharacterStream(parameterIndex, x);
+	}
+
+	public void setNCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+		prepared.setNCharacterStream(parameterIndex, x, length);
+	}
+
+	public void setNClob(int parameterIndex, NClob x) throws SQLException {
+		prepared.setNClob(parameterIndex, x);
+	}
+
+	public void setNClob(int parameterIndex, Reader x) throws SQLException {
+		prepared.setNClob(parameterIndex, x);
+	}
+
+	public void setNClob(int parameterIndex, Reader x, long length) throws SQLException {
+		prepared.setNClob(parameterIndex, x, length);
+	}
+
+	public void setNString(int parameterIndex, String x) throws SQLException {
+		prepared.setNString(parameterIndex, x);
+	}
+
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		prepared.setNull(parameterIndex, sqlType);
+	}
+
+	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+		prepared.setNull(parameterIndex, sqlType, typeName);
+	}
+
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+		prepared.setObject(parameterIndex, x);
+	}
+
+	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+		prepared.setObject(parameterIndex, x, targetSqlType);
+	}
+
+	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+		prepared.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		prepared.setRef(parameterIndex, x);
+	}
+
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		prepared.setRowId(parameterIndex, x);
+	}
+
+	public void setSQLXML(int parameterIndex, SQLXML x) throws SQLException {
+		prepared.setSQLXML(parameterIndex, x);
+	}
+
+	public void setShort(int parameterIndex, short x) throws SQLException {
+		prepared.setShort(parameterIndex, x);
+	}
+
+	public void setString(int parameterIndex, String x) throws SQLException {
+		prepared.setString(parameterIndex, x);
+	}
+
+	public void setTime(int parameterIndex, Time x) throws SQLException {
+		prepared.setTime(parameterIndex, x);
+	}
+
+	public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+		prepared.setTime(parameterIndex, x, cal);
+	}
+
+	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+		prepared.setTimestamp(parameterIndex, x);
+	}
+
+	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+		prepared.setTimestamp(parameterIndex, x, cal);
+	}
+
+	public void setURL(int parameterIndex, URL x) throws SQLException {
+		prepared.setURL(parameterIndex, x);
+	}
+
+	@SuppressWarnings("deprecation")
+	public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		prepared.setUnicodeStream(parameterIndex, x, length);
+	}
+}
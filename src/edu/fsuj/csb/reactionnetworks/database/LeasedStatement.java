@@ -0,0 +1,271 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * a statement on a connection leased from the ConnectionPool. All calls are forwarded to the statement of the driver, closing it hands the connection back to the pool.
+ * If executing the statement fails due to a connection failure, the connection is marked as broken, so that the pool discards it. Result sets are monitored likewise.
+ */
+class LeasedStatement implements Statement {
+
+	private final Statement statement;
+	final ConnectionPool.Lease lease;
+	private boolean closeOnCompletion = false;
+
+	LeasedStatement(Statement statement, ConnectionPool.Lease lease) {
+		this.statement = statement;
+		this.lease = lease;
+	}
+
+	/**
+	 * @return the result set wrapped into a MonitoredResultSet, null for null
+	 */
+	ResultSet wrap(ResultSet resultSet) {
+		return (resultSet == null) ? null : new MonitoredResultSet(resultSet, this);
+	}
+
+	/**
+	 * called by MonitoredResultSet.close(), closes the statement, if closeOnCompletion() has been called
+	 */
+	void resultClosed() throws SQLException {
+		if (closeOnCompletion) close();
+	}
+
+	/**
+	 * closes the statement or hands it back to the statement cache of its connection, and returns the lease of the connection. Closing it again has no effect.
+	 */
+	public void close() throws SQLException {
+		lease.close(statement);
+	}
+
+	public void addBatch(String sql) throws SQLException {
+		statement.addBatch(sql);
+	}
+
+	public void cancel() throws SQLException {
+		try {
+			statement.cancel();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public void clearBatch() throws SQLException {
+		statement.clearBatch();
+	}
+
+	public void clearWarnings() throws SQLException {
+		statement.clearWarnings();
+	}
+
+	/**
+	 * implemented by the wrapper, as drivers for Java 6 (JDBC 4.0) do not know this method
+	 */
+	public void closeOnCompletion() throws SQLException {
+		closeOnCompletion = true;
+	}
+
+	public boolean execute(String sql) throws SQLException {
+		try {
+			return statement.execute(sql);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		try {
+			return statement.execute(sql, columnNames);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		try {
+			return statement.execute(sql, autoGeneratedKeys);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		try {
+			return statement.execute(sql, columnIndexes);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int[] executeBatch() throws SQLException {
+		try {
+			return statement.executeBatch();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public ResultSet executeQuery(String sql) throws SQLException {
+		try {
+			return wrap(statement.executeQuery(sql));
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int executeUpdate(String sql) throws SQLException {
+		try {
+			return statement.executeUpdate(sql);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		try {
+			return statement.executeUpdate(sql, columnNames);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		try {
+			return statement.executeUpdate(sql, autoGeneratedKeys);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		try {
+			return statement.executeUpdate(sql, columnIndexes);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public Connection getConnection() throws SQLException {
+		return statement.getConnection();
+	}
+
+	public int getFetchDirection() throws SQLException {
+		return statement.getFetchDirection();
+	}
+
+	public int getFetchSize() throws SQLException {
+		return statement.getFetchSize();
+	}
+
+	public ResultSet getGeneratedKeys() throws SQLException {
+		return wrap(statement.getGeneratedKeys());
+	}
+
+	public int getMaxFieldSize() throws SQLException {
+		return statement.getMaxFieldSize();
+	}
+
+	public int getMaxRows() throws SQLException {
+		return statement.getMaxRows();
+	}
+
+	public boolean getMoreResults() throws SQLException {
+		try {
+			return statement.getMoreResults();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public boolean getMoreResults(int current) throws SQLException {
+		try {
+			return statement.getMoreResults(current);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public int getQueryTimeout() throws SQLException {
+		return statement.getQueryTimeout();
+	}
+
+	public ResultSet getResultSet() throws SQLException {
+		return wrap(statement.getResultSet());
+	}
+
+	public int getResultSetConcurrency() throws SQLException {
+		return statement.getResultSetConcurrency();
+	}
+
+	public int getResultSetHoldability() throws SQLException {
+		return statement.getResultSetHoldability();
+	}
+
+	public int getResultSetType() throws SQLException {
+		return statement.getResultSetType();
+	}
+
+	public int getUpdateCount() throws SQLException {
+		return statement.getUpdateCount();
+	}
+
+	public SQLWarning getWarnings() throws SQLException {
+		return statement.getWarnings();
+	}
+
+	public boolean isCloseOnCompletion() throws SQLException {
+		return closeOnCompletion;
+	}
+
+	public boolean isClosed() throws SQLException {
+		return statement.isClosed();
+	}
+
+	public boolean isPoolable() throws SQLException {
+		return statement.isPoolable();
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return statement.isWrapperFor(iface);
+	}
+
+	public void setCursorName(String name) throws SQLException {
+		statement.setCursorName(name);
+	}
+
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+		statement.setEscapeProcessing(enable);
+	}
+
+	public void setFetchDirection(int direction) throws SQLException {
+		statement.setFetchDirection(direction);
+	}
+
+	public void setFetchSize(int rows) throws SQLException {
+		statement.setFetchSize(rows);
+	}
+
+	public void setMaxFieldSize(int max) throws SQLException {
+		statement.setMaxFieldSize(max);
+	}
+
+	public void setMaxRows(int max) throws SQLException {
+		statement.setMaxRows(max);
+	}
+
+	public void setPoolable(boolean poolable) throws SQLException {
+		statement.setPoolable(poolable);
+	}
+
+	public void setQueryTimeout(int seconds) throws SQLException {
+		statement.setQueryTimeout(seconds);
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return statement.unwrap(iface);
+	}
+}
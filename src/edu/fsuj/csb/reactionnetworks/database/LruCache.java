@@ -0,0 +1,166 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a size bounded map, which evicts the least recently used entry, when it is full. All methods are thread safe.
+ */
+public class LruCache<K, V> {
+
+	private final String name;
+	private final int capacity;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LinkedHashMap<K, V> map;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * creates a new cache
+	 *
+	 * @param name the name used in the statistics
+	 * @param capacity the maximum number of entries. A cache with capacity 0 stores nothing.
+	 */
+	public LruCache(String name, int capacity) {
+		this.name = name;
+		this.capacity = Math.max(0, capacity);
+		map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if (size() <= LruCache.this.capacity) return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * @param key the key
+	 * @return the value cached for the key or null, if there is none
+	 */
+	public V get(K key) {
+		lock.lock();
+		try {
+			V value = map.get(key);
+			if (value == null) {
+				misses++;
+			} else hits++;
+			return value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void put(K key, V value) {
+		if (key == null || value == null || capacity == 0) return;
+		lock.lock();
+		try {
+			map.put(key, value);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * removes the entry for the key
+	 */
+	public void invalidate(K key) {
+		lock.lock();
+		try {
+			map.remove(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * removes all entries with the given value
+	 */
+	public void invalidateValue(V value) {
+		lock.lock();
+		try {
+			for (Iterator<V> it = map.values().iterator(); it.hasNext();) {
+				if (it.next().equals(value)) it.remove();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * removes all entries
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			map.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return map.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		lock.lock();
+		try {
+			return hits;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getMisses() {
+		lock.lock();
+		try {
+			return misses;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getEvictions() {
+		lock.lock();
+		try {
+			return evictions;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the share of lookups answered by the cache, between 0 and 1
+	 */
+	public double getHitRate() {
+		lock.lock();
+		try {
+			return (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public String toString() {
+		lock.lock();
+		try {
+			return name + " cache(size: " + map.size() + "/" + capacity + ", hits: " + hits + ", misses: " + misses + ", hit rate: " + Math.round(100.0 * hits / Math.max(1, hits + misses)) + "%, evictions: " + evictions + ")";
+		} finally {
+			lock.unlock();
+		}
+	}
+}
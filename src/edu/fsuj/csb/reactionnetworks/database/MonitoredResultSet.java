@@ -0,0 +1,850 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * a result set of a LeasedStatement. All calls are forwarded to the result set of the driver.
+ * If moving to another row fails due to a connection failure, e.g. while a large result is streamed, the connection is marked as broken, so that the pool discards it.
+ * Methods added by JDBC 4.1 (Java 7) are implemented with JDBC 4.0 methods, so the class also compiles and runs on Java 6.
+ */
+class MonitoredResultSet implements ResultSet {
+
+	private final ResultSet resultSet;
+	private final LeasedStatement statement;
+	private final ConnectionPool.Lease lease;
+
+	MonitoredResultSet(ResultSet resultSet, LeasedStatement statement) {
+		this.resultSet = resultSet;
+		this.statement = statement;
+		this.lease = statement.lease;
+	}
+
+	public boolean absolute(int row) throws SQLException {
+		try {
+			return resultSet.absolute(row);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public void afterLast() throws SQLException {
+		try {
+			resultSet.afterLast();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public void beforeFirst() throws SQLException {
+		try {
+			resultSet.beforeFirst();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public void cancelRowUpdates() throws SQLException {
+		resultSet.cancelRowUpdates();
+	}
+
+	public void clearWarnings() throws SQLException {
+		resultSet.clearWarnings();
+	}
+
+	public void close() throws SQLException {
+		resultSet.close();
+		statement.resultClosed();
+	}
+
+	public void deleteRow() throws SQLException {
+		resultSet.deleteRow();
+	}
+
+	public int findColumn(String columnLabel) throws SQLException {
+		return resultSet.findColumn(columnLabel);
+	}
+
+	public boolean first() throws SQLException {
+		try {
+			return resultSet.first();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public Array getArray(String columnLabel) throws SQLException {
+		return resultSet.getArray(columnLabel);
+	}
+
+	public Array getArray(int columnIndex) throws SQLException {
+		return resultSet.getArray(columnIndex);
+	}
+
+	public InputStream getAsciiStream(String columnLabel) throws SQLException {
+		return resultSet.getAsciiStream(columnLabel);
+	}
+
+	public InputStream getAsciiStream(int columnIndex) throws SQLException {
+		return resultSet.getAsciiStream(columnIndex);
+	}
+
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return resultSet.getBigDecimal(columnLabel);
+	}
+
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		return resultSet.getBigDecimal(columnIndex);
+	}
+
+	@SuppressWarnings("deprecation")
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+		return resultSet.getBigDecimal(columnLabel, scale);
+	}
+
+	@SuppressWarnings("deprecation")
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		return resultSet.getBigDecimal(columnIndex, scale);
+	}
+
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		return resultSet.getBinaryStream(columnLabel);
+	}
+
+	public InputStream getBinaryStream(int columnIndex) throws SQLException {
+		return resultSet.getBinaryStream(columnIndex);
+	}
+
+	public Blob getBlob(String columnLabel) throws SQLException {
+		return resultSet.getBlob(columnLabel);
+	}
+
+	public Blob getBlob(int columnIndex) throws SQLException {
+		return resultSet.getBlob(columnIndex);
+	}
+
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return resultSet.getBoolean(columnLabel);
+	}
+
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		return resultSet.getBoolean(columnIndex);
+	}
+
+	public byte getByte(String columnLabel) throws SQLException {
+		return resultSet.getByte(columnLabel);
+	}
+
+	public byte getByte(int columnIndex) throws SQLException {
+		return resultSet.getByte(columnIndex);
+	}
+
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return resultSet.getBytes(columnLabel);
+	}
+
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		return resultSet.getBytes(columnIndex);
+	}
+
+	public Reader getCharacterStream(String columnLabel) throws SQLException {
+		return resultSet.getCharacterStream(columnLabel);
+	}
+
+	public Reader getCharacterStream(int columnIndex) throws SQLException {
+		return resultSet.getCharacterStream(columnIndex);
+	}
+
+	public Clob getClob(String columnLabel) throws SQLException {
+		return resultSet.getClob(columnLabel);
+	}
+
+	public Clob getClob(int columnIndex) throws SQLException {
+		return resultSet.getClob(columnIndex);
+	}
+
+	public int getConcurrency() throws SQLException {
+		return resultSet.getConcurrency();
+	}
+
+	public String getCursorName() throws SQLException {
+		return resultSet.getCursorName();
+	}
+
+	public Date getDate(String columnLabel) throws SQLException {
+		return resultSet.getDate(columnLabel);
+	}
+
+	public Date getDate(int columnIndex) throws SQLException {
+		return resultSet.getDate(columnIndex);
+	}
+
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+		return resultSet.getDate(columnLabel, cal);
+	}
+
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		return resultSet.getDate(columnIndex, cal);
+	}
+
+	public double getDouble(String columnLabel) throws SQLException {
+		return resultSet.getDouble(columnLabel);
+	}
+
+	public double getDouble(int columnIndex) throws SQLException {
+		return resultSet.getDouble(columnIndex);
+	}
+
+	public int getFetchDirection() throws SQLException {
+		return resultSet.getFetchDirection();
+	}
+
+	public int getFetchSize() throws SQLException {
+		return resultSet.getFetchSize();
+	}
+
+	public float getFloat(String columnLabel) throws SQLException {
+		return resultSet.getFloat(columnLabel);
+	}
+
+	public float getFloat(int columnIndex) throws SQLException {
+		return resultSet.getFloat(columnIndex);
+	}
+
+	public int getHoldability() throws SQLException {
+		return resultSet.getHoldability();
+	}
+
+	public int getInt(String columnLabel) throws SQLException {
+		return resultSet.getInt(columnLabel);
+	}
+
+	public int getInt(int columnIndex) throws SQLException {
+		return resultSet.getInt(columnIndex);
+	}
+
+	public long getLong(String columnLabel) throws SQLException {
+		return resultSet.getLong(columnLabel);
+	}
+
+	public long getLong(int columnIndex) throws SQLException {
+		return resultSet.getLong(columnIndex);
+	}
+
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return resultSet.getMetaData();
+	}
+
+	public Reader getNCharacterStream(String columnLabel) throws SQLException {
+		return resultSet.getNCharacterStream(columnLabel);
+	}
+
+	public Reader getNCharacterStream(int columnIndex) throws SQLException {
+		return resultSet.getNCharacterStream(columnIndex);
+	}
+
+	public NClob getNClob(String columnLabel) throws SQLException {
+		return resultSet.getNClob(columnLabel);
+	}
+
+	public NClob getNClob(int columnIndex) throws SQLException {
+		return resultSet.getNClob(columnIndex);
+	}
+
+	public String getNString(String columnLabel) throws SQLException {
+		return resultSet.getNString(columnLabel);
+	}
+
+	public String getNString(int columnIndex) throws SQLException {
+		return resultSet.getNString(columnIndex);
+	}
+
+	public Object getObject(String columnLabel) throws SQLException {
+		return resultSet.getObject(columnLabel);
+	}
+
+	public Object getObject(int columnIndex) throws SQLException {
+		return resultSet.getObject(columnIndex);
+	}
+
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return cast(resultSet.getObject(columnLabel), type);
+	}
+
+	public Object getObject(String columnLabel, Map<String,  Class<?>> map) throws SQLException {
+		return resultSet.getObject(columnLabel, map);
+	}
+
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		return cast(resultSet.getObject(columnIndex), type);
+	}
+
+	private static <T> T cast(Object value, Class<T> type) throws SQLException {
+		try {
+			return type.cast(value);
+		} catch (ClassCastException e) {
+			throw new SQLException("can not convert " + value.getClass().getName() + " to " + type.getName(), "22018", e);
+		}
+	}
+
+	public Object getObject(int columnIndex, Map<String,  Class<?>> map) throws SQLException {
+		return resultSet.getObject(columnIndex, map);
+	}
+
+	public Ref getRef(String columnLabel) throws SQLException {
+		return resultSet.getRef(columnLabel);
+	}
+
+	public Ref getRef(int columnIndex) throws SQLException {
+		return resultSet.getRef(columnIndex);
+	}
+
+	public int getRow() throws SQLException {
+		return resultSet.getRow();
+	}
+
+	public RowId getRowId(String columnLabel) throws SQLException {
+		return resultSet.getRowId(columnLabel);
+	}
+
+	public RowId getRowId(int columnIndex) throws SQLException {
+		return resultSet.getRowId(columnIndex);
+	}
+
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		return resultSet.getSQLXML(columnLabel);
+	}
+
+	public SQLXML getSQLXML(int columnIndex) throws SQLException {
+		return resultSet.getSQLXML(columnIndex);
+	}
+
+	public short getShort(String columnLabel) throws SQLException {
+		return resultSet.getShort(columnLabel);
+	}
+
+	public short getShort(int columnIndex) throws SQLException {
+		return resultSet.getShort(columnIndex);
+	}
+
+	public Statement getStatement() throws SQLException {
+		return statement;
+	}
+
+	public String getString(String columnLabel) throws SQLException {
+		return resultSet.getString(columnLabel);
+	}
+
+	public String getString(int columnIndex) throws SQLException {
+		return resultSet.getString(columnIndex);
+	}
+
+	public Time getTime(String columnLabel) throws SQLException {
+		return resultSet.getTime(columnLabel);
+	}
+
+	public Time getTime(int columnIndex) throws SQLException {
+		return resultSet.getTime(columnIndex);
+	}
+
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+		return resultSet.getTime(columnLabel, cal);
+	}
+
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		return resultSet.getTime(columnIndex, cal);
+	}
+
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return resultSet.getTimestamp(columnLabel);
+	}
+
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		return resultSet.getTimestamp(columnIndex);
+	}
+
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+		return resultSet.getTimestamp(columnLabel, cal);
+	}
+
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		return resultSet.getTimestamp(columnIndex, cal);
+	}
+
+	public int getType() throws SQLException {
+		return resultSet.getType();
+	}
+
+	public URL getURL(String columnLabel) throws SQLException {
+		return resultSet.getURL(columnLabel);
+	}
+
+	public URL getURL(int columnIndex) throws SQLException {
+		return resultSet.getURL(columnIndex);
+	}
+
+	@SuppressWarnings("deprecation")
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		return resultSet.getUnicodeStream(columnLabel);
+	}
+
+	@SuppressWarnings("deprecation")
+	public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+		return resultSet.getUnicodeStream(columnIndex);
+	}
+
+	public SQLWarning getWarnings() throws SQLException {
+		return resultSet.getWarnings();
+	}
+
+	public void insertRow() throws SQLException {
+		resultSet.insertRow();
+	}
+
+	public boolean isAfterLast() throws SQLException {
+		return resultSet.isAfterLast();
+	}
+
+	public boolean isBeforeFirst() throws SQLException {
+		return resultSet.isBeforeFirst();
+	}
+
+	public boolean isClosed() throws SQLException {
+		return resultSet.isClosed();
+	}
+
+	public boolean isFirst() throws SQLException {
+		return resultSet.isFirst();
+	}
+
+	public boolean isLast() throws SQLException {
+		return resultSet.isLast();
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return resultSet.isWrapperFor(iface);
+	}
+
+	public boolean last() throws SQLException {
+		try {
+			return resultSet.last();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public void moveToCurrentRow() throws SQLException {
+		resultSet.moveToCurrentRow();
+	}
+
+	public void moveToInsertRow() throws SQLException {
+		resultSet.moveToInsertRow();
+	}
+
+	public boolean next() throws SQLException {
+		try {
+			return resultSet.next();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public boolean previous() throws SQLException {
+		try {
+			return resultSet.previous();
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public void refreshRow() throws SQLException {
+		resultSet.refreshRow();
+	}
+
+	public boolean relative(int rows) throws SQLException {
+		try {
+			return resultSet.relative(rows);
+		} catch (SQLException e) {
+			throw lease.failed(e);
+		}
+	}
+
+	public boolean rowDeleted() throws SQLException {
+		return resultSet.rowDeleted();
+	}
+
+	public boolean rowInserted() throws SQLException {
+		return resultSet.rowInserted();
+	}
+
+	public boolean rowUpdated() throws SQLException {
+		return resultSet.rowUpdated();
+	}
+
+	public void setFetchDirection(int direction) throws SQLException {
+		resultSet.setFetchDirection(direction);
+	}
+
+	public void setFetchSize(int rows) throws SQLException {
+		resultSet.setFetchSize(rows);
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return resultSet.unwrap(iface);
+	}
+
+	public void updateArray(String columnLabel, Array x) throws SQLException {
+		resultSet.updateArray(columnLabel, x);
+	}
+
+	public void updateArray(int columnIndex, Array x) throws SQLException {
+		resultSet.updateArray(columnIndex, x);
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+		resultSet.updateAsciiStream(columnLabel, x);
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+		resultSet.updateAsciiStream(columnIndex, x);
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+		resultSet.updateAsciiStream(columnLabel, x, length);
+	}
+
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+		resultSet.updateAsciiStream(columnLabel, x, length);
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+		resultSet.updateAsciiStream(columnIndex, x, length);
+	}
+
+	public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+		resultSet.updateAsciiStream(columnIndex, x, length);
+	}
+
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+		resultSet.updateBigDecimal(columnLabel, x);
+	}
+
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+		resultSet.updateBigDecimal(columnIndex, x);
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+		resultSet.updateBinaryStream(columnLabel, x);
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+		resultSet.updateBinaryStream(columnIndex, x);
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException {
+		resultSet.updateBinaryStream(columnLabel, x, length);
+	}
+
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+		resultSet.updateBinaryStream(columnLabel, x, length);
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+		resultSet.updateBinaryStream(columnIndex, x, length);
+	}
+
+	public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+		resultSet.updateBinaryStream(columnIndex, x, length);
+	}
+
+	public void updateBlob(String columnLabel, Blob x) throws SQLException {
+		resultSet.updateBlob(columnLabel, x);
+	}
+
+	public void updateBlob(String columnLabel, InputStream x) throws SQLException {
+		resultSet.updateBlob(columnLabel, x);
+	}
+
+	public void updateBlob(int columnIndex, Blob x) throws SQLException {
+		resultSet.updateBlob(columnIndex, x);
+	}
+
+	public void updateBlob(int columnIndex, InputStream x) throws SQLException {
+		resultSet.updateBlob(columnIndex, x);
+	}
+
+	public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException {
+		resultSet.updateBlob(columnLabel, x, length);
+	}
+
+	public void updateBlob(int columnIndex, InputStream x, long length) throws SQLException {
+		resultSet.updateBlob(columnIndex, x, length);
+	}
+
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+		resultSet.updateBoolean(columnLabel, x);
+	}
+
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+		resultSet.updateBoolean(columnIndex, x);
+	}
+
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+		resultSet.updateByte(columnLabel, x);
+	}
+
+	public void updateByte(int columnIndex, byte x) throws SQLException {
+		resultSet.updateByte(columnIndex, x);
+	}
+
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+		resultSet.updateBytes(columnLabel, x);
+	}
+
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+		resultSet.updateBytes(columnIndex, x);
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+		resultSet.updateCharacterStream(columnLabel, x);
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+		resultSet.updateCharacterStream(columnIndex, x);
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException {
+		resultSet.updateCharacterStream(columnLabel, x, length);
+	}
+
+	public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		resultSet.updateCharacterStream(columnLabel, x, length);
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+		resultSet.updateCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		resultSet.updateCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateClob(String columnLabel, Clob x) throws SQLException {
+		resultSet.updateClob(columnLabel, x);
+	}
+
+	public void updateClob(String columnLabel, Reader x) throws SQLException {
+		resultSet.updateClob(columnLabel, x);
+	}
+
+	public void updateClob(int columnIndex, Clob x) throws SQLException {
+		resultSet.updateClob(columnIndex, x);
+	}
+
+	public void updateClob(int columnIndex, Reader x) throws SQLException {
+		resultSet.updateClob(columnIndex, x);
+	}
+
+	public void updateClob(String columnLabel, Reader x, long length) throws SQLException {
+		resultSet.updateClob(columnLabel, x, length);
+	}
+
+	public void updateClob(int columnIndex, Reader x, long length) throws SQLException {
+		resultSet.updateClob(columnIndex, x, length);
+	}
+
+	public void updateDate(String columnLabel, Date x) throws SQLException {
+		resultSet.updateDate(columnLabel, x);
+	}
+
+	public void updateDate(int columnIndex, Date x) throws SQLException {
+		resultSet.updateDate(columnIndex, x);
+	}
+
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+		resultSet.updateDouble(columnLabel, x);
+	}
+
+	public void updateDouble(int columnIndex, double x) throws SQLException {
+		resultSet.updateDouble(columnIndex, x);
+	}
+
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+		resultSet.updateFloat(columnLabel, x);
+	}
+
+	public void updateFloat(int columnIndex, float x) throws SQLException {
+		resultSet.updateFloat(columnIndex, x);
+	}
+
+	public void updateInt(String columnLabel, int x) throws SQLException {
+		resultSet.updateInt(columnLabel, x);
+	}
+
+	public void updateInt(int columnIndex, int x) throws SQLException {
+		resultSet.updateInt(columnIndex, x);
+	}
+
+	public void updateLong(String columnLabel, long x) throws SQLException {
+		resultSet.updateLong(columnLabel, x);
+	}
+
+	public void updateLong(int columnIndex, long x) throws SQLException {
+		resultSet.updateLong(columnIndex, x);
+	}
+
+	public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+		resultSet.updateNCharacterStream(columnLabel, x);
+	}
+
+	public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+		resultSet.updateNCharacterStream(columnIndex, x);
+	}
+
+	public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		resultSet.updateNCharacterStream(columnLabel, x, length);
+	}
+
+	public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		resultSet.updateNCharacterStream(columnIndex, x, length);
+	}
+
+	public void updateNClob(String columnLabel, NClob x) throws SQLException {
+		resultSet.updateNClob(columnLabel, x);
+	}
+
+	public void updateNClob(String columnLabel, Reader x) throws SQLException {
+		resultSet.updateNClob(columnLabel, x);
+	}
+
+	public void updateNClob(int columnIndex, NClob x) throws SQLException {
+		resultSet.updateNClob(columnIndex, x);
+	}
+
+	public void updateNClob(int columnIndex, Reader x) throws SQLException {
+		resultSet.updateNClob(columnIndex, x);
+	}
+
+	public void updateNClob(String columnLabel, Reader x, long length) throws SQLException {
+		resultSet.updateNClob(columnLabel, x, length);
+	}
+
+	public void updateNClob(int columnIndex, Reader x, long length) throws SQLException {
+		resultSet.updateNClob(columnIndex, x, length);
+	}
+
+	public void updateNString(String columnLabel, String x) throws SQLException {
+		resultSet.updateNString(columnLabel, x);
+	}
+
+	public void updateNString(int columnIndex, String x) throws SQLException {
+		resultSet.updateNString(columnIndex, x);
+	}
+
+	public void updateNull(String columnLabel) throws SQLException {
+		resultSet.updateNull(columnLabel);
+	}
+
+	public void updateNull(int columnIndex) throws SQLException {
+		resultSet.updateNull(columnIndex);
+	}
+
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+		resultSet.updateObject(columnLabel, x);
+	}
+
+	public void updateObject(int columnIndex, Object x) throws SQLException {
+		resultSet.updateObject(columnIndex, x);
+	}
+
+	public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException {
+		resultSet.updateObject(columnLabel, x, scaleOrLength);
+	}
+
+	public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException {
+		resultSet.updateObject(columnIndex, x, scaleOrLength);
+	}
+
+	public void updateRef(String columnLabel, Ref x) throws SQLException {
+		resultSet.updateRef(columnLabel, x);
+	}
+
+	public void updateRef(int columnIndex, Ref x) throws SQLException {
+		resultSet.updateRef(columnIndex, x);
+	}
+
+	public void updateRow() throws SQLException {
+		resultSet.updateRow();
+	}
+
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+		resultSet.updateRowId(columnLabel, x);
+	}
+
+	public void updateRowId(int columnIndex, RowId x) throws SQLException {
+		resultSet.updateRowId(columnIndex, x);
+	}
+
+	public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+		resultSet.updateSQLXML(columnLabel, x);
+	}
+
+	public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException {
+		resultSet.updateSQLXML(columnIndex, x);
+	}
+
+	public void updateShort(String columnLabel, short x) throws SQLException {
+		resultSet.updateShort(columnLabel, x);
+	}
+
+	public void updateShort(int columnIndex, short x) throws SQLException {
+		resultSet.updateShort(columnIndex, x);
+	}
+
+	public void updateString(String columnLabel, String x) throws SQLException {
+		resultSet.updateString(columnLabel, x);
+	}
+
+	public void updateString(int columnIndex, String x) throws SQLException {
+		resultSet.updateString(columnIndex, x);
+	}
+
+	public void updateTime(String columnLabel, Time x) throws SQLException {
+		resultSet.updateTime(columnLabel, x);
+	}
+
+	public void updateTime(int columnIndex, Time x) throws SQLException {
+		resultSet.updateTime(columnIndex, x);
+	}
+
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+		resultSet.updateTimestamp(columnLabel, x);
+	}
+
+	public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+		resultSet.updateTimestamp(columnIndex, x);
+	}
+
+	public boolean wasNull() throws SQLException {
+		return resultSet.wasNull();
+	}
+}
@@ -0,0 +1,113 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.sql.SQLException;
+
+/**
+ * dialect for MySQL servers, accessed via Connector/J
+ */
+public class MySqlDialect extends Dialect {
+
+	private static final int ER_TABLE_EXISTS_ERROR = 1050;
+	private static final int ER_DUP_FIELDNAME = 1060;
+	private static final int ER_DUP_KEYNAME = 1061;
+
+	public String driver() {
+		return "com.mysql.jdbc.Driver";
+	}
+
+	public boolean embedded() {
+		return false;
+	}
+
+	public String url(String location, String database, String options) {
+		return "jdbc:mysql://" + location + "/" + (options.length() > 0 ? "?" + options : "");
+	}
+
+	public String defaultOptions() {
+		return "useServerPrepStmts=true";
+	}
+
+	public String initStatement(String database) {
+		return "USE " + database;
+	}
+
+	public String textType() {
+		return "TEXT";
+	}
+
+	/**
+	 * tables are created with the InnoDB engine, as MyISAM tables do not support transactions
+	 */
+	public String tableOptions(String charset) {
+		return " ENGINE=InnoDB" + ((charset == null) ? "" : " CHARACTER SET " + charset);
+	}
+
+	/**
+	 * lists the tables not using InnoDB, e.g. MyISAM tables created before tableOptions requested InnoDB
+	 */
+	public String nonTransactionalTables() {
+		return "SELECT table_name FROM information_schema.tables WHERE table_schema=DATABASE() AND table_type='BASE TABLE' AND engine<>'InnoDB'";
+	}
+
+	public String makeTransactional(String table) {
+		return "ALTER TABLE " + table + " ENGINE=InnoDB";
+	}
+
+	/**
+	 * TEXT columns can only be indexed by a prefix
+	 */
+	public String indexColumn(String column, int prefixLength) {
+		return column + "(" + prefixLength + ")";
+	}
+
+	/**
+	 * Connector/J streams a result row by row only with this fetch size, any other value buffers the whole result
+	 */
+	public int streamingFetchSize() {
+		return Integer.MIN_VALUE;
+	}
+
+	public boolean alreadyExists(SQLException e) {
+		int code = e.getErrorCode();
+		return code == ER_TABLE_EXISTS_ERROR || code == ER_DUP_FIELDNAME || code == ER_DUP_KEYNAME;
+	}
+
+	public String insertIgnore(String table, String columns, int keyColumns, int rows) {
+		return "INSERT IGNORE INTO " + table + " (" + columns + ") VALUES " + rows(count(columns), rows);
+	}
+
+	public String insertIgnoreSelect(String table, String columns, int keyColumns, String select) {
+		return "INSERT IGNORE INTO " + table + " (" + columns + ") " + select;
+	}
+
+	/**
+	 * LOAD DATA LOCAL INFILE, which requires local_infile to be enabled on the server
+	 */
+	public String bulkLoad(String table, String columns, String file, boolean replace) {
+		return "LOAD DATA LOCAL INFILE '" + file.replace("\\", "\\\\").replace("'", "\\'") + "' " + (replace ? "REPLACE" : "IGNORE") + " INTO TABLE " + table + " FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' (" + columns + ")";
+	}
+
+	public String upsert(String table, String columns, int keyColumns, int rows) {
+		String[] names = columns.split(",");
+		StringBuffer updates = new StringBuffer();
+		for (int i = keyColumns; i < names.length; i++) {
+			if (updates.length() > 0) updates.append(", ");
+			String name = names[i].trim();
+			updates.append(name + "=VALUES(" + name + ")");
+		}
+		if (updates.length() == 0) return insertIgnore(table, columns, rows);
+		return "INSERT INTO " + table + " (" + columns + ") VALUES " + rows(names.length, rows) + " ON DUPLICATE KEY UPDATE " + updates;
+	}
+
+	public String lastInsertId() {
+		return "SELECT LAST_INSERT_ID()";
+	}
+
+	public String updateJoined(String target, String source, String condition, String assignments) {
+		return "UPDATE " + target + " JOIN " + source + " ON (" + condition + ") SET " + assignments;
+	}
+
+	public String deleteJoined(String table, String keyColumns, String join, String condition) {
+		return "DELETE " + table + ".* FROM " + join + " WHERE " + condition;
+	}
+}
@@ -0,0 +1,448 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.zip.DataFormatException;
+
+import edu.fsuj.csb.tools.organisms.Formula;
+import edu.fsuj.csb.tools.organisms.Reaction;
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * a read-only binary snapshot of the reaction networks of the database, which analysis jobs can use instead of querying the database.
+ *
+ * The snapshot is written by export (or by running this class with the name of the file as argument) and read by mapping the file into memory,
+ * so opening it takes no time regardless of its size, the data is not copied to the heap, and processes reading the same file share its pages.
+ * It contains the types of the ids, the formulas of the substances, the substrates and products of the reactions, the reaction directions
+ * and enzymes of the compartments and the names of the ids. The methods of the reader correspond to the methods of InteractionDB with the same names.
+ *
+ * Format (big endian): the magic number, the format version, the number of sections and the offsets of the sections within the file, followed by the sections.
+ * The types section holds the largest id and a type byte per id. The strings section holds the number of strings, the offsets of the strings
+ * within the UTF-8 encoded text following them, and the text; formulas and names refer to strings by their number. All other sections are tables, which map sorted keys to rows of values:
+ * the number of keys, the number of values, a flag telling whether there is a second value per row, the keys, the row starts and the values.
+ * As a mapped buffer is limited to 2 GB, so is the snapshot.
+ */
+public class NetworkSnapshot {
+
+	public static final int MAGIC = 0x49444253; // "IDBS"
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int TYPES = 0, STRINGS = 1, FORMULAS = 2, NAMES = 3, SUBSTRATES = 4, PRODUCTS = 5, DIRECTIONS = 6, ENZYMES = 7;
+	private static final int SECTIONS = 8;
+
+	/**
+	 * collects the rows of a table section, which have to be added in the order of their keys
+	 */
+	private static class TableWriter {
+		private int[] keys = new int[64], starts = new int[65], values = new int[64], values2;
+		private int keyCount = 0, valueCount = 0;
+
+		private TableWriter(boolean paired) {
+			if (paired) values2 = new int[64];
+		}
+
+		private void add(int key, int value, int value2) {
+			if (keyCount == 0 || keys[keyCount - 1] != key) {
+				if (keyCount > 0 && keys[keyCount - 1] > key) throw new IllegalArgumentException("keys not sorted: " + key + " after " + keys[keyCount - 1]);
+				if (keyCount == keys.length) {
+					starts = Arrays.copyOf(starts, 2 * keys.length + 1);
+					keys = Arrays.copyOf(keys, 2 * keys.length);
+				}
+				keys[keyCount] = key;
+				starts[keyCount++] = valueCount;
+			}
+			if (valueCount == values.length) {
+				values = Arrays.copyOf(values, 2 * values.length);
+				if (values2 != null) values2 = Arrays.copyOf(values2, values.length);
+			}
+			values[valueCount] = value;
+			if (values2 != null) values2[valueCount] = value2;
+			valueCount++;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			starts[keyCount] = valueCount;
+			out.writeInt(keyCount);
+			out.writeInt(valueCount);
+			out.writeInt(values2 == null ? 0 : 1);
+			for (int i = 0; i < keyCount; i++) out.writeInt(keys[i]);
+			for (int i = 0; i <= keyCount; i++) out.writeInt(starts[i]);
+			for (int i = 0; i < valueCount; i++) out.writeInt(values[i]);
+			if (values2 != null) for (int i = 0; i < valueCount; i++) out.writeInt(values2[i]);
+		}
+	}
+
+	/**
+	 * numbers the strings written to the snapshot, so every string is stored once
+	 */
+	private static class StringPool {
+		private final HashMap<String, Integer> numbers = new HashMap<String, Integer>();
+		private final Vector<String> strings = new Vector<String>();
+
+		private int intern(String s) {
+			Integer number = numbers.get(s);
+			if (number == null) {
+				numbers.put(s, number = strings.size());
+				strings.add(s);
+			}
+			return number;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			Vector<byte[]> encoded = new Vector<byte[]>(strings.size());
+			for (String s : strings) encoded.add(s.getBytes("UTF-8"));
+			out.writeInt(encoded.size());
+			int offset = 0;
+			for (byte[] bytes : encoded) {
+				out.writeInt(offset);
+				offset += bytes.length;
+			}
+			out.writeInt(offset);
+			for (byte[] bytes : encoded) out.write(bytes);
+		}
+	}
+
+	/**
+	 * writes a snapshot of the database to a file. The snapshot is written to a temporary file in the same directory, which is renamed to the file when complete,
+	 * so readers never map a partially written snapshot, and readers of the replaced snapshot keep their mapping (on platforms, where renaming replaces the target atomically).
+	 *
+	 * @param file the file to write. It is replaced, if it exists.
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static void export(File file) throws SQLException, IOException {
+		Tools.startMethod("NetworkSnapshot.export(" + file + ")");
+		Integer lastId = InteractionDB.getLastID();
+		final byte[] types = new byte[(lastId == null ? 0 : lastId) + 1];
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				int id = rs.getInt(1);
+				if (id >= 0 && id < types.length) types[id] = (byte) rs.getInt(2);
+			}
+		}, "SELECT id, type FROM ids");
+		final StringPool strings = new StringPool();
+		final TableWriter formulas = new TableWriter(false);
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				formulas.add(rs.getInt(1), strings.intern(rs.getString(2)), 0);
+			}
+		}, "SELECT id, formula FROM substances WHERE formula IS NOT NULL ORDER BY id");
+		final TableWriter names = new TableWriter(false);
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			private int previousId = -1;
+			private String previousName = null;
+
+			public void handle(ResultSet rs) throws SQLException {
+				int id = rs.getInt(1);
+				String name = rs.getString(2);
+				if (id == previousId && name.equals(previousName)) return; // same name from different sources
+				names.add(id, strings.intern(name), 0);
+				previousId = id;
+				previousName = name;
+			}
+		}, "SELECT i.id, n.name FROM id_names i JOIN names n ON n.nid=i.nid ORDER BY i.id, n.name");
+		TableWriter substrates = stoichiometries("substrates");
+		TableWriter products = stoichiometries("products");
+		final TableWriter directions = new TableWriter(true);
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				byte dir = 0;
+				if (rs.getBoolean(3)) dir += Reaction.FORWARD;
+				if (rs.getBoolean(4)) dir += Reaction.BACKWARD;
+				directions.add(rs.getInt(1), rs.getInt(2), dir);
+			}
+		}, "SELECT cid, rid, forward, backward FROM reaction_directions ORDER BY cid, rid");
+		final TableWriter enzymes = new TableWriter(false);
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				enzymes.add(rs.getInt(1), rs.getInt(2), 0);
+			}
+		}, "SELECT cid, eid FROM enzymes_compartments ORDER BY cid, eid");
+
+		int[] offsets = new int[SECTIONS];
+		File temp = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+		boolean complete = false;
+		try {
+			write(temp, offsets, types, strings, formulas, names, substrates, products, directions, enzymes);
+			replace(temp, file);
+			complete = true;
+		} finally {
+			if (!complete) temp.delete();
+		}
+		Tools.endMethod(file.length() + " bytes");
+	}
+
+	private static void write(File file, int[] offsets, byte[] types, StringPool strings, TableWriter formulas, TableWriter names, TableWriter substrates, TableWriter products, TableWriter directions, TableWriter enzymes) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(SECTIONS);
+			for (int i = 0; i < SECTIONS; i++) out.writeInt(0); // offsets, written when known
+			offsets[TYPES] = out.size();
+			out.writeInt(types.length - 1);
+			out.write(types);
+			offsets[STRINGS] = out.size();
+			strings.write(out);
+			offsets[FORMULAS] = out.size();
+			formulas.write(out);
+			offsets[NAMES] = out.size();
+			names.write(out);
+			offsets[SUBSTRATES] = out.size();
+			substrates.write(out);
+			offsets[PRODUCTS] = out.size();
+			products.write(out);
+			offsets[DIRECTIONS] = out.size();
+			directions.write(out);
+			offsets[ENZYMES] = out.size();
+			enzymes.write(out);
+			if (out.size() == Integer.MAX_VALUE) throw new IOException("snapshot exceeds 2 GB");
+		} finally {
+			out.close();
+		}
+		RandomAccessFile header = new RandomAccessFile(file, "rw");
+		try {
+			header.seek(12);
+			for (int offset : offsets) header.writeInt(offset);
+			header.getFD().sync(); // the data has to be on disk before the file is renamed
+		} finally {
+			header.close();
+		}
+	}
+
+	/**
+	 * renames the source file to the target, replacing the target. Where renaming can not replace an existing file (Windows), the target is deleted first.
+	 */
+	private static void replace(File source, File target) throws IOException {
+		if (source.renameTo(target)) return;
+		if (target.exists() && !target.delete()) throw new IOException("unable to replace " + target);
+		if (!source.renameTo(target)) throw new IOException("unable to rename " + source + " to " + target);
+	}
+
+	/**
+	 * reads the substrates or products of all reactions, ordered by reaction
+	 */
+	private static TableWriter stoichiometries(String table) throws SQLException, IOException {
+		final TableWriter result = new TableWriter(true);
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				result.add(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+			}
+		}, "SELECT rid, sid, stoich FROM " + table + " ORDER BY rid, sid");
+		return result;
+	}
+
+	/**
+	 * a table section of a mapped snapshot
+	 */
+	private static class Table {
+		private final ByteBuffer buffer;
+		private final int keyCount;
+		private final int keys, starts, values, values2;
+
+		private Table(ByteBuffer buffer, int offset) {
+			this.buffer = buffer;
+			keyCount = buffer.getInt(offset);
+			int valueCount = buffer.getInt(offset + 4);
+			boolean paired = buffer.getInt(offset + 8) != 0;
+			keys = offset + 12;
+			starts = keys + 4 * keyCount;
+			values = starts + 4 * (keyCount + 1);
+			values2 = paired ? values + 4 * valueCount : -1;
+		}
+
+		/**
+		 * @return the position of the key or -1
+		 */
+		private int find(int key) {
+			int low = 0;
+			int high = keyCount - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int k = buffer.getInt(keys + 4 * mid);
+				if (k < key) {
+					low = mid + 1;
+				} else if (k > key) {
+					high = mid - 1;
+				} else return mid;
+			}
+			return -1;
+		}
+
+		private int start(int position) {
+			return buffer.getInt(starts + 4 * position);
+		}
+
+		private int value(int i) {
+			return buffer.getInt(values + 4 * i);
+		}
+
+		private int value2(int i) {
+			return buffer.getInt(values2 + 4 * i);
+		}
+	}
+
+	private final ByteBuffer buffer;
+	private final int maxId;
+	private final int types;
+	private final int stringCount, stringOffsets, text;
+	private final Table formulas, names, substrates, products, directions, enzymes;
+
+	/**
+	 * maps a snapshot written by export into memory
+	 *
+	 * @param file the snapshot
+	 * @throws IOException if the file can not be read or is no snapshot of the current format version
+	 */
+	public NetworkSnapshot(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() > Integer.MAX_VALUE) throw new IOException(file + " exceeds 2 GB");
+			MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()); // stays valid after the channel is closed
+			buffer = mapped;
+		} finally {
+			raf.close();
+		}
+		if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) throw new IOException(file + " is no network snapshot");
+		if (buffer.getInt(4) != FORMAT_VERSION) throw new IOException(file + " has format version " + buffer.getInt(4) + ", expected " + FORMAT_VERSION);
+		if (buffer.getInt(8) < SECTIONS) throw new IOException(file + " is incomplete");
+		int[] offsets = new int[SECTIONS];
+		for (int i = 0; i < SECTIONS; i++) offsets[i] = buffer.getInt(12 + 4 * i);
+		maxId = buffer.getInt(offsets[TYPES]);
+		types = offsets[TYPES] + 4;
+		stringCount = buffer.getInt(offsets[STRINGS]);
+		stringOffsets = offsets[STRINGS] + 4;
+		text = stringOffsets + 4 * (stringCount + 1);
+		formulas = new Table(buffer, offsets[FORMULAS]);
+		names = new Table(buffer, offsets[NAMES]);
+		substrates = new Table(buffer, offsets[SUBSTRATES]);
+		products = new Table(buffer, offsets[PRODUCTS]);
+		directions = new Table(buffer, offsets[DIRECTIONS]);
+		enzymes = new Table(buffer, offsets[ENZYMES]);
+	}
+
+	private String string(int number) {
+		int start = buffer.getInt(stringOffsets + 4 * number);
+		int end = buffer.getInt(stringOffsets + 4 * (number + 1));
+		byte[] bytes = new byte[end - start];
+		ByteBuffer view = buffer.duplicate();
+		view.position(text + start);
+		view.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the largest id of the snapshot
+	 */
+	public int getLastID() {
+		return maxId;
+	}
+
+	/**
+	 * @param id an id
+	 * @return the type of the id (InteractionDB.SUBSTANCE etc.) or 0, if the id does not exist
+	 */
+	public int getType(int id) {
+		if (id < 0 || id > maxId) return 0;
+		return buffer.get(types + id);
+	}
+
+	/**
+	 * @param id a substance id
+	 * @return the formula of the substance as stored in the database, or null
+	 */
+	public String getFormulaCode(int id) {
+		int position = formulas.find(id);
+		return (position < 0) ? null : string(formulas.value(formulas.start(position)));
+	}
+
+	public Formula getFormula(int id) throws DataFormatException {
+		String formula = getFormulaCode(id);
+		return (formula == null) ? null : new Formula(formula);
+	}
+
+	public TreeSet<String> getNames(int id) {
+		TreeSet<String> result = Tools.StringSet();
+		int position = names.find(id);
+		if (position < 0) return result;
+		for (int i = names.start(position); i < names.start(position + 1); i++) result.add(string(names.value(i)));
+		return result;
+	}
+
+	public TreeMap<Integer, Integer> loadSubstrates(int rid) {
+		return stoichiometries(substrates, rid);
+	}
+
+	public TreeMap<Integer, Integer> loadProducts(int rid) {
+		return stoichiometries(products, rid);
+	}
+
+	private static TreeMap<Integer, Integer> stoichiometries(Table table, int rid) {
+		TreeMap<Integer, Integer> result = new TreeMap<Integer, Integer>();
+		int position = table.find(rid);
+		if (position < 0) return result;
+		for (int i = table.start(position); i < table.start(position + 1); i++) result.put(table.value(i), table.value2(i));
+		return result;
+	}
+
+	public byte readDirections(int cid, int rid) {
+		int position = directions.find(cid);
+		if (position < 0) return 0;
+		int low = directions.start(position);
+		int high = directions.start(position + 1) - 1;
+		while (low <= high) { // the reactions of a compartment are sorted
+			int mid = (low + high) >>> 1;
+			int r = directions.value(mid);
+			if (r < rid) {
+				low = mid + 1;
+			} else if (r > rid) {
+				high = mid - 1;
+			} else return (byte) directions.value2(mid);
+		}
+		return 0;
+	}
+
+	public TreeSet<Integer> loadEnzymesOfCompartment(int cid) {
+		TreeSet<Integer> result = new TreeSet<Integer>();
+		int position = enzymes.find(cid);
+		if (position < 0) return result;
+		for (int i = enzymes.start(position); i < enzymes.start(position + 1); i++) result.add(enzymes.value(i));
+		return result;
+	}
+
+	public String toString() {
+		return "NetworkSnapshot(" + maxId + " ids, " + stringCount + " strings, " + substrates.keyCount + " reactions, " + enzymes.keyCount + " compartments)";
+	}
+
+	/**
+	 * exports the database to the file given as first argument
+	 */
+	public static void main(String[] args) throws SQLException, IOException {
+		if (args.length != 1) {
+			System.err.println("usage: NetworkSnapshot <file>");
+			System.exit(1);
+		}
+		File file = new File(args[0]);
+		export(file);
+		System.out.println(new NetworkSnapshot(file));
+	}
+}
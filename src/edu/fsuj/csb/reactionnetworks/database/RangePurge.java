@@ -0,0 +1,258 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * removes all content referring to ids within a range (exclusive bounds) from the database, without locking large parts of the tables for a long time.
+ *
+ * The range is deleted in chunks of purgeChunkSize (default: 1000) ids, each chunk in a transaction of its own.
+ * The tables are purged in three phases, so rows are deleted before the rows they reference: link tables, entity tables, ids.
+ * The tables of one phase are purged in parallel by purgeThreads (default: 4) threads.
+ * The progress is stored in the table purge_progress after each chunk, keyed by step and range, so a purge of the same range started after an interruption continues where the interrupted one stopped,
+ * while purges of other ranges keep their own progress.
+ */
+public class RangePurge {
+
+	/**
+	 * deletes the rows of one table, whose id column lies within a chunk
+	 */
+	private static class Step {
+		private final String name;
+		private final String delete;
+
+		/**
+		 * @param name the name of the step, used to store its progress
+		 * @param delete the delete statement, containing two ? for the bounds of the chunk
+		 */
+		private Step(String name, String delete) {
+			this.name = name;
+			this.delete = delete;
+		}
+	}
+
+	/**
+	 * @param table the table
+	 * @param column the column holding the id
+	 * @return a step deleting the rows, whose column lies within the chunk
+	 */
+	private static Step step(String table, String column) {
+		return new Step(table + "." + column, "DELETE FROM " + table + " WHERE " + column + ">=? AND " + column + "<?");
+	}
+
+	private static Vector<Vector<Step>> phases() {
+		Vector<Vector<Step>> phases = new Vector<Vector<Step>>();
+		Vector<Step> links = new Vector<Step>();
+		links.add(step("compartment_pathways", "cid"));
+		links.add(step("compartment_pathways", "pid"));
+		links.add(step("enzymes_compartments", "cid"));
+		links.add(step("enzymes_compartments", "eid"));
+		links.add(step("hierarchy", "contained"));
+		links.add(step("hierarchy", "container"));
+		links.add(step("products", "sid"));
+		links.add(step("products", "rid"));
+		links.add(step("substrates", "sid"));
+		links.add(step("substrates", "rid"));
+		links.add(step("reaction_directions", "rid"));
+		links.add(step("reaction_directions", "cid"));
+		links.add(step("reaction_enzymes", "rid"));
+		links.add(step("reaction_enzymes", "eid"));
+		links.add(step("abbrevations", "id"));
+		links.add(step("id_names", "id"));
+		links.add(new Step("urn_urls.id", "DELETE FROM urn_urls WHERE uid IN (SELECT uid FROM urns WHERE id>=? AND id<?)"));
+		phases.add(links);
+		Vector<Step> entities = new Vector<Step>();
+		entities.add(step("compartments", "id"));
+		entities.add(step("enzymes", "id"));
+		entities.add(step("reactions", "id"));
+		entities.add(step("substances", "id"));
+		entities.add(step("urns", "id"));
+		phases.add(entities);
+		Vector<Step> ids = new Vector<Step>();
+		ids.add(step("ids", "id"));
+		phases.add(ids);
+		return phases;
+	}
+
+	private final int min;
+	private final int max;
+	private final int chunkSize;
+	private final int threads;
+	private final AtomicLong deletedRows = new AtomicLong();
+	private final AtomicInteger completedChunks = new AtomicInteger();
+	private int totalChunks = 0;
+
+	/**
+	 * creates a purge of the ids between min and max, configured by the keys purgeChunkSize and purgeThreads
+	 *
+	 * @param min the largest id below the range, which is kept
+	 * @param max the smallest id above the range, which is kept
+	 * @throws IOException if config file can not be read
+	 */
+	public RangePurge(int min, int max) throws IOException {
+		this.min = Math.min(min, max);
+		this.max = Math.max(min, max);
+		chunkSize = Math.max(1, InteractionDB.getConfigValue("purgeChunkSize", 1000));
+		threads = Math.max(1, InteractionDB.getConfigValue("purgeThreads", 4));
+	}
+
+	/**
+	 * @return the statement creating the table purge_progress
+	 */
+	static String createTable(Dialect dialect) {
+		return "CREATE TABLE purge_progress (step VARCHAR(100) NOT NULL, min INT NOT NULL, max INT NOT NULL, done INT NOT NULL, PRIMARY KEY(step, min, max))" + dialect.tableOptions(null);
+	}
+
+	/**
+	 * @return the first id of the chunk following the last chunk done by a previous run of this purge, by step name
+	 */
+	private TreeMap<String, Integer> readProgress() throws SQLException, IOException {
+		final TreeMap<String, Integer> result = new TreeMap<String, Integer>();
+		InteractionDB.query(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				result.put(rs.getString(1), rs.getInt(2));
+			}
+		}, "SELECT step, done FROM purge_progress WHERE min=? AND max=?", min, max);
+		return result;
+	}
+
+	/**
+	 * deletes the range from one table, chunk by chunk
+	 */
+	private void purge(Vector<Step> steps, TreeMap<String, Integer> progress) throws SQLException, IOException {
+		Dialect dialect = InteractionDB.dialect();
+		for (Step step : steps) {
+			Integer done = progress.get(step.name);
+			int start = (done == null) ? min + 1 : done;
+			long rows = 0;
+			for (int lower = start; lower < max; lower += chunkSize) {
+				int upper = (int) Math.min((long) lower + chunkSize, max);
+				Transaction transaction = Transaction.begin();
+				try {
+					rows += InteractionDB.update(step.delete, lower, upper);
+					InteractionDB.update(dialect.upsert("purge_progress", "step, min, max, done", 3), step.name, min, max, upper);
+					transaction.commit();
+				} finally {
+					transaction.end();
+				}
+				completedChunks.incrementAndGet();
+			}
+			deletedRows.addAndGet(rows);
+			System.out.println("purged " + rows + " rows by " + step.name + " (" + getProgress() + "% done)");
+		}
+	}
+
+	/**
+	 * runs the purge
+	 *
+	 * @return the number of deleted rows
+	 * @throws SQLException if a chunk could not be deleted. The chunks done so far are kept, running the purge again resumes it.
+	 * @throws IOException
+	 */
+	public long run() throws SQLException, IOException {
+		Tools.startMethod("RangePurge.run(" + min + " < id < " + max + ")");
+		if (max - min < 2) {
+			Tools.endMethod(0);
+			return 0;
+		}
+		InteractionDB.flushBulkLoad(); // buffered rows of the range would be written after their deletion otherwise
+		Vector<Vector<Step>> phases = phases();
+		int chunksPerStep = (int) ((max - min - 2L) / chunkSize + 1);
+		totalChunks = 0;
+		for (Vector<Step> phase : phases) totalChunks += phase.size() * chunksPerStep;
+		final TreeMap<String, Integer> progress = readProgress();
+		for (Vector<Step> phase : phases) {
+			for (Step step : phase) {
+				Integer done = progress.get(step.name);
+				if (done != null) completedChunks.addAndGet((int) Math.min(chunksPerStep, (done - min - 1L + chunkSize - 1) / chunkSize));
+			}
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger number = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "InteractionDB purge " + number.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (Vector<Step> phase : phases) {
+				TreeMap<String, Vector<Step>> tables = new TreeMap<String, Vector<Step>>(); // the steps of one table run sequentially, different tables in parallel
+				for (Step step : phase) {
+					String table = step.name.substring(0, step.name.indexOf('.'));
+					if (!tables.containsKey(table)) tables.put(table, new Vector<Step>());
+					tables.get(table).add(step);
+				}
+				Vector<Future<Void>> futures = new Vector<Future<Void>>();
+				for (final Vector<Step> steps : tables.values()) {
+					futures.add(executor.submit(new Callable<Void>() {
+						public Void call() throws Exception {
+							purge(steps, progress);
+							return null;
+						}
+					}));
+				}
+				await(futures);
+			}
+			InteractionDB.update("DELETE FROM purge_progress WHERE min=? AND max=?", min, max);
+		} finally {
+			executor.shutdownNow();
+		}
+		Tools.endMethod(deletedRows.get());
+		return deletedRows.get();
+	}
+
+	/**
+	 * waits for all tasks of a phase, passing the first failure to the caller
+	 */
+	private static void await(Vector<Future<Void>> futures) throws SQLException, IOException {
+		Throwable failure = null;
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (failure == null) failure = e.getCause();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("purge interrupted");
+			}
+		}
+		if (failure == null) return;
+		if (failure instanceof SQLException) throw (SQLException) failure;
+		if (failure instanceof IOException) throw (IOException) failure;
+		if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+		throw new SQLException(failure.toString());
+	}
+
+	/**
+	 * @return the share of chunks done, in percent
+	 */
+	public int getProgress() {
+		return (totalChunks == 0) ? 0 : (int) (100L * completedChunks.get() / totalChunks);
+	}
+
+	/**
+	 * @return the number of rows deleted so far
+	 */
+	public long getDeletedRows() {
+		return deletedRows.get();
+	}
+
+	public String toString() {
+		return "RangePurge(" + min + " < id < " + max + ", " + getProgress() + "% done, " + deletedRows.get() + " rows deleted)";
+	}
+}
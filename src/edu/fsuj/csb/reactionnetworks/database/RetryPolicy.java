@@ -0,0 +1,189 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * repeats database operations, which failed for a transient reason (broken connection, deadlock, lock wait timeout).
+ * Between two attempts, the policy waits for a random time up to an exponentially growing limit.
+ *
+ * Operations started while another operation of the same thread is running are not retried on their own: a failure is passed to the outermost operation, which is replayed as a whole.
+ * Operations within a transaction are not retried at all, a failure rolls back the transaction. Transactions run by Transaction.run are replayed as a whole instead.
+ * Thus, a batch of statements wrapped into one operation is repeated completely, if one of its statements fails.
+ */
+public class RetryPolicy {
+
+	/**
+	 * a database operation, which may be executed several times
+	 */
+	public interface Operation<T> {
+		public T run() throws SQLException, IOException;
+	}
+
+	/**
+	 * signals a failure, after which the operation must not be repeated, e.g. because part of its result has already been processed.
+	 * SQLState, vendor code and cause are taken from the original exception.
+	 */
+	static class NotRepeatableException extends SQLException {
+		private static final long serialVersionUID = 1L;
+
+		NotRepeatableException(String reason, SQLException cause) {
+			super(reason, cause.getSQLState(), cause.getErrorCode(), cause);
+		}
+	}
+
+	private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+	private static final int ER_LOCK_DEADLOCK = 1213;
+
+	private static final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	private final int maxAttempts;
+	private final long initialDelay;
+	private final long maxDelay;
+	private final Random random = new Random();
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/**
+	 * creates a new retry policy
+	 *
+	 * @param maxAttempts the number of attempts, after which an operation is given up
+	 * @param initialDelay the maximum delay in milliseconds before the second attempt
+	 * @param maxDelay the upper bound of the delay in milliseconds, which doubles with every attempt
+	 */
+	RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.initialDelay = Math.max(0, initialDelay);
+		this.maxDelay = Math.max(this.initialDelay, maxDelay);
+	}
+
+	/**
+	 * runs the operation, repeating it after transient failures
+	 *
+	 * @param operation the operation to run
+	 * @param idempotent if false, the operation is only repeated, if it failed before reaching the database server
+	 * @return the result of the operation
+	 * @throws SQLException if the operation failed permanently or the number of attempts is exhausted
+	 * @throws IOException
+	 */
+	<T> T run(Operation<T> operation, boolean idempotent) throws SQLException, IOException {
+		int[] level = depth.get();
+		if (level[0] > 0) return operation.run();
+		level[0]++;
+		try {
+			for (int attempt = 1;; attempt++) {
+				try {
+					return operation.run();
+				} catch (SQLException e) {
+					if (e instanceof NotRepeatableException || !(idempotent ? isTransient(e) : notExecuted(e))) throw e;
+					if (attempt >= maxAttempts) {
+						failureCount.incrementAndGet();
+						throw e;
+					}
+					long delay = delay(attempt);
+					Tools.warn("transient database failure (" + e.getSQLState() + ": " + e.getMessage() + "), attempt " + attempt + " of " + maxAttempts + ", retrying in " + delay + " ms");
+					retryCount.incrementAndGet();
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw e;
+					}
+				}
+			}
+		} finally {
+			level[0]--;
+		}
+	}
+
+	/**
+	 * suppresses retries of the current thread's operations until exit() is called, e.g. during a transaction, which can not be resumed on another connection
+	 */
+	static void enter() {
+		depth.get()[0]++;
+	}
+
+	/**
+	 * ends the section started by enter()
+	 */
+	static void exit() {
+		depth.get()[0]--;
+	}
+
+	/**
+	 * @return a random delay between 0 and min(maxDelay, initialDelay * 2^(attempt-1))
+	 */
+	private long delay(int attempt) {
+		long limit = initialDelay << Math.min(attempt - 1, 30);
+		if (limit <= 0 || limit > maxDelay) limit = maxDelay;
+		synchronized (random) {
+			return (long) (random.nextDouble() * limit);
+		}
+	}
+
+	/**
+	 * returns the first exception in the chain, which carries an SQLState
+	 */
+	private static SQLException classified(SQLException e) {
+		for (SQLException current = e; current != null; current = current.getNextException()) {
+			if (current.getSQLState() != null) return current;
+		}
+		return e;
+	}
+
+	/**
+	 * decides by SQLState and vendor code, whether an exception was caused by a transient condition
+	 *
+	 * @param e the exception to classify
+	 * @return true for connection failures (class 08), transaction rollbacks (class 40), deadlocks and lock wait timeouts
+	 */
+	static boolean isTransient(SQLException e) {
+		SQLException c = classified(e);
+		int code = c.getErrorCode();
+		if (code == ER_LOCK_DEADLOCK || code == ER_LOCK_WAIT_TIMEOUT) return true;
+		String state = c.getSQLState();
+		return state != null && (state.startsWith("08") || state.startsWith("40"));
+	}
+
+	/**
+	 * @return true, if the exception signals a broken or unavailable connection (SQLState class 08)
+	 */
+	static boolean isConnectionFailure(SQLException e) {
+		String state = classified(e).getSQLState();
+		return state != null && state.startsWith("08");
+	}
+
+	/**
+	 * @return true, if the exception signals, that no connection could be established, so that the statement has not been executed
+	 */
+	private static boolean notExecuted(SQLException e) {
+		String state = classified(e).getSQLState();
+		return "08001".equals(state) || "08004".equals(state);
+	}
+
+	/**
+	 * @return the number of attempts repeated after transient failures
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * @return the number of operations, which still failed after the last attempt
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	public String toString() {
+		return "RetryPolicy(attempts: " + maxAttempts + ", delay: " + initialDelay + "-" + maxDelay + " ms, retries: " + retryCount.get() + ", failures: " + failureCount.get() + ")";
+	}
+}
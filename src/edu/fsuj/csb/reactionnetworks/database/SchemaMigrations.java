@@ -0,0 +1,144 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Vector;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * evolves the schema of existing databases. Each migration has a version number; the versions applied are recorded in the table schema_version.
+ * Migrations are applied in the order of their versions and must be idempotent, as a migration interrupted before it was recorded is applied again,
+ * and databases created by checkTables already contain the tables and columns some migrations add.
+ * New migrations are appended to the list in migrations() with the next version number.
+ */
+public class SchemaMigrations {
+
+	/**
+	 * one step of the schema evolution
+	 */
+	private static abstract class Migration {
+		private final int version;
+		private final String description;
+
+		private Migration(int version, String description) {
+			this.version = version;
+			this.description = description;
+		}
+
+		abstract void apply(Dialect dialect) throws SQLException, IOException;
+	}
+
+	private static Vector<Migration> migrations() {
+		Vector<Migration> migrations = new Vector<Migration>();
+		migrations.add(new Migration(1, "digest columns for names, urls and urns") {
+			void apply(Dialect dialect) throws SQLException, IOException {
+				InteractionDB.addDigests("names", "nid", "name");
+				InteractionDB.addDigests("urls", "lid", "url");
+				InteractionDB.addDigests("urns", "uid", "urn");
+			}
+		});
+		migrations.add(new Migration(2, "indexes for foreign keys and lookups") {
+			void apply(Dialect dialect) throws SQLException, IOException {
+				createIndex(dialect, "ids", "type");
+				createIndex(dialect, "urns", "id");
+				createIndex(dialect, "urn_urls", "lid");
+				createIndex(dialect, "id_names", "nid");
+				createIndex(dialect, "id_names", "lid");
+				createIndex(dialect, "substrates", "rid");
+				createIndex(dialect, "products", "rid");
+				createIndex(dialect, "reaction_enzymes", "eid");
+				createIndex(dialect, "reaction_directions", "cid");
+				createIndex(dialect, "enzymes_compartments", "eid");
+				createIndex(dialect, "compartment_pathways", "pid");
+				createIndex(dialect, "hierarchy", "container");
+				createIndex(dialect, "enzymes", dialect.indexColumn("ec", 32));
+			}
+		});
+		migrations.add(new Migration(3, "purge progress keyed by step and range") {
+			void apply(Dialect dialect) throws SQLException, IOException {
+				// the progress only serves to resume interrupted purges, whose chunks may be deleted again, so the table is recreated instead of converted
+				InteractionDB.update("DROP TABLE IF EXISTS purge_progress");
+				InteractionDB.update(RangePurge.createTable(dialect));
+			}
+		});
+		migrations.add(new Migration(4, "transactional engine for all tables") {
+			void apply(Dialect dialect) throws SQLException, IOException {
+				// rollbacks of Transaction silently keep the changes of non-transactional tables, so they are converted
+				String query = dialect.nonTransactionalTables();
+				if (query == null) return;
+				final Vector<String> tables = new Vector<String>();
+				InteractionDB.query(new InteractionDB.RowHandler() {
+					public void handle(ResultSet rs) throws SQLException {
+						tables.add(rs.getString(1));
+					}
+				}, query);
+				for (String table : tables) {
+					String conversion = dialect.makeTransactional(table);
+					if (conversion == null) throw new SQLException("table " + table + " does not support transactions and can not be converted");
+					Tools.warn("table " + table + " does not support transactions, converting it");
+					InteractionDB.update(conversion);
+				}
+			}
+		});
+		migrations.add(new Migration(5, "cache of formulas scraped from web pages") {
+			void apply(Dialect dialect) throws SQLException, IOException {
+				try {
+					InteractionDB.update("CREATE TABLE scraped_formulas (digest CHAR(40) NOT NULL PRIMARY KEY, url " + dialect.textType() + " NOT NULL, formula " + dialect.textType() + ", fetched BIGINT NOT NULL)" + dialect.tableOptions(null));
+				} catch (SQLException e) {
+					if (!dialect.alreadyExists(e)) throw e;
+				}
+			}
+		});
+		return migrations;
+	}
+
+	/**
+	 * creates an index named after table and column, unless it exists
+	 */
+	private static void createIndex(Dialect dialect, String table, String column) throws SQLException, IOException {
+		String name = table + "_" + column.replaceAll("\\W.*", "");
+		try {
+			InteractionDB.update(dialect.createIndex(name, table, column));
+			Tools.indent("created index " + name);
+		} catch (SQLException e) {
+			if (!dialect.alreadyExists(e)) throw e;
+		}
+	}
+
+	/**
+	 * @return the latest version applied to the database, 0 if none
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static int currentVersion() throws SQLException, IOException {
+		Integer version = InteractionDB.queryInt("SELECT MAX(version) FROM schema_version");
+		return (version == null) ? 0 : version;
+	}
+
+	/**
+	 * applies all migrations newer than the current version of the database. Called by InteractionDB.checkTables.
+	 *
+	 * @return the number of migrations applied
+	 * @throws SQLException if a migration failed. The migrations applied before are kept.
+	 * @throws IOException
+	 */
+	public static int migrate() throws SQLException, IOException {
+		Tools.startMethod("SchemaMigrations.migrate()");
+		int current = currentVersion();
+		Dialect dialect = InteractionDB.dialect();
+		int count = 0;
+		for (Migration migration : migrations()) {
+			if (migration.version <= current) continue;
+			Tools.indent("migrating schema to version " + migration.version + ": " + migration.description);
+			migration.apply(dialect);
+			InteractionDB.insertIgnore("schema_version", "version, description, applied", 1, migration.version, migration.description, new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+			count++;
+		}
+		Tools.endMethod(count);
+		return count;
+	}
+}
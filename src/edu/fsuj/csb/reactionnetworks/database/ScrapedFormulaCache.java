@@ -0,0 +1,106 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.net.URL;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * keeps the formula codes parsed from web pages by InteractionDB.getFormulaFrom, so pages are not fetched again.
+ *
+ * The cache has two tiers: a bounded in-memory LruCache of scrapedFormulaCacheSize (default: 10000) urls, and the table scraped_formulas,
+ * which keeps the codes across runs together with the time they were fetched. Pages without formula are cached as well.
+ * Entries of the table expire after scrapedFormulaTtl (default: 90) days, entries of pages without formula after scrapedFormulaNegativeTtl (default: 7) days,
+ * so pages are fetched again after these times. Entries of the memory tier do not expire during a run. All methods are thread safe.
+ */
+public class ScrapedFormulaCache {
+
+	/** the code stored for pages without formula */
+	static final String NONE = "";
+
+	private final LruCache<String, String> memory;
+	private final long ttl;
+	private final long negativeTtl;
+
+	/**
+	 * creates a cache, configured by the keys scrapedFormulaCacheSize, scrapedFormulaTtl and scrapedFormulaNegativeTtl
+	 *
+	 * @throws IOException if config file can not be read
+	 */
+	ScrapedFormulaCache() throws IOException {
+		memory = new LruCache<String, String>("scraped formula", InteractionDB.getConfigValue("scrapedFormulaCacheSize", 10000));
+		ttl = TimeUnit.DAYS.toMillis(InteractionDB.getConfigValue("scrapedFormulaTtl", 90));
+		negativeTtl = TimeUnit.DAYS.toMillis(InteractionDB.getConfigValue("scrapedFormulaNegativeTtl", 7));
+	}
+
+	/**
+	 * @param url the page
+	 * @return the formula code found on the page, NONE if the page has no formula, or null if the page has not been fetched or its entry has expired
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	String get(URL url) throws SQLException, IOException {
+		String key = url.toString();
+		String code = memory.get(key);
+		if (code != null) return code;
+		final String[] formula = { null };
+		final long[] fetched = { -1 };
+		InteractionDB.query(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				formula[0] = rs.getString(1);
+				fetched[0] = rs.getLong(2);
+			}
+		}, "SELECT formula, fetched FROM scraped_formulas WHERE digest=?", InteractionDB.digest(key));
+		if (fetched[0] < 0) return null;
+		code = (formula[0] == null) ? NONE : formula[0];
+		long age = System.currentTimeMillis() - fetched[0];
+		if (age > (formula[0] == null ? negativeTtl : ttl)) return null;
+		memory.put(key, code);
+		return code;
+	}
+
+	/**
+	 * stores the result of fetching a page. Failures to write the table are ignored, as the entry can be fetched again.
+	 *
+	 * @param url the page
+	 * @param code the formula code found on the page or null, if it has no formula
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	void put(URL url, String code) throws SQLException, IOException {
+		String key = url.toString();
+		if (code != null && code.length() == 0) code = null;
+		memory.put(key, (code == null) ? NONE : code);
+		InteractionDB.execute(InteractionDB.dialect().upsert("scraped_formulas", "digest, url, formula, fetched", 1), InteractionDB.digest(key), key, code, System.currentTimeMillis());
+	}
+
+	/**
+	 * removes the expired entries from the table
+	 *
+	 * @return the number of entries removed
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public int removeExpired() throws SQLException, IOException {
+		Tools.startMethod("ScrapedFormulaCache.removeExpired()");
+		long now = System.currentTimeMillis();
+		int result = InteractionDB.update("DELETE FROM scraped_formulas WHERE (formula IS NOT NULL AND fetched<?) OR (formula IS NULL AND fetched<?)", now - ttl, now - negativeTtl);
+		memory.clear();
+		Tools.endMethod(result);
+		return result;
+	}
+
+	/**
+	 * @return the in-memory tier, e.g. for its statistics
+	 */
+	public LruCache<String, String> getMemoryTier() {
+		return memory;
+	}
+
+	public String toString() {
+		return "ScrapedFormulaCache(" + memory + ", ttl: " + TimeUnit.MILLISECONDS.toDays(ttl) + " / " + TimeUnit.MILLISECONDS.toDays(negativeTtl) + " days)";
+	}
+}
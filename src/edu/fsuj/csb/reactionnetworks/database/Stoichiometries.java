@@ -0,0 +1,195 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeMap;
+
+/**
+ * the substrates and products of a set of reactions, as loaded by InteractionDB.loadReactions.
+ *
+ * The data is stored in compressed rows: the reaction ids are sorted, and the substrates of the i-th reaction are found at the positions
+ * substrateStart[i] to substrateStart[i+1]-1 of the arrays of substrate ids and stoichiometric coefficients; products likewise.
+ * The arrays returned by the accessors are the internal ones and must not be modified.
+ */
+public class Stoichiometries {
+
+	/**
+	 * a growable list of (reaction, substance, coefficient) triples
+	 */
+	private static class Rows {
+		private int[] data = new int[3 * 64];
+		private int size = 0;
+
+		private void add(int rid, int sid, int stoich) {
+			if (3 * size + 3 > data.length) data = Arrays.copyOf(data, 2 * data.length);
+			data[3 * size] = rid;
+			data[3 * size + 1] = sid;
+			data[3 * size + 2] = stoich;
+			size++;
+		}
+	}
+
+	/**
+	 * collects the rows read from the database
+	 */
+	static class Builder {
+		private final int[] rids;
+		private final Rows substrates = new Rows();
+		private final Rows products = new Rows();
+
+		/**
+		 * @param rids the reactions to be loaded
+		 */
+		Builder(Collection<Integer> rids) {
+			int[] sorted = new int[rids.size()];
+			int count = 0;
+			for (Integer rid : rids) {
+				if (rid != null) sorted[count++] = rid;
+			}
+			Arrays.sort(sorted, 0, count);
+			int distinct = 0;
+			for (int i = 0; i < count; i++) {
+				if (distinct == 0 || sorted[distinct - 1] != sorted[i]) sorted[distinct++] = sorted[i];
+			}
+			this.rids = Arrays.copyOf(sorted, distinct);
+		}
+
+		/**
+		 * @param rids the reactions to be loaded
+		 */
+		Builder(IntSet rids) {
+			this.rids = rids.toArray();
+		}
+
+		/**
+		 * adds a substrate. Rows of reactions not passed to the constructor are skipped, as they may show up, if the rows are read by another query than the reactions.
+		 */
+		void addSubstrate(int rid, int sid, int stoich) {
+			if (Arrays.binarySearch(rids, rid) >= 0) substrates.add(rid, sid, stoich);
+		}
+
+		/**
+		 * adds a product, skipping rows of unknown reactions like addSubstrate
+		 */
+		void addProduct(int rid, int sid, int stoich) {
+			if (Arrays.binarySearch(rids, rid) >= 0) products.add(rid, sid, stoich);
+		}
+
+		Stoichiometries build() {
+			int[] substrateStart = new int[rids.length + 1];
+			int[] substrateIds = new int[substrates.size];
+			int[] substrateStoich = new int[substrates.size];
+			fill(substrates, substrateStart, substrateIds, substrateStoich);
+			int[] productStart = new int[rids.length + 1];
+			int[] productIds = new int[products.size];
+			int[] productStoich = new int[products.size];
+			fill(products, productStart, productIds, productStoich);
+			return new Stoichiometries(rids, substrateStart, substrateIds, substrateStoich, productStart, productIds, productStoich);
+		}
+
+		/**
+		 * distributes the rows to the compressed arrays, counting the rows per reaction first
+		 */
+		private void fill(Rows rows, int[] start, int[] ids, int[] stoich) {
+			int[] index = new int[rows.size];
+			for (int r = 0; r < rows.size; r++) {
+				index[r] = Arrays.binarySearch(rids, rows.data[3 * r]);
+				start[index[r] + 1]++;
+			}
+			for (int i = 0; i < rids.length; i++) start[i + 1] += start[i];
+			int[] next = Arrays.copyOf(start, rids.length);
+			for (int r = 0; r < rows.size; r++) {
+				int position = next[index[r]]++;
+				ids[position] = rows.data[3 * r + 1];
+				stoich[position] = rows.data[3 * r + 2];
+			}
+		}
+	}
+
+	private final int[] rids;
+	private final int[] substrateStart, substrateIds, substrateStoich;
+	private final int[] productStart, productIds, productStoich;
+
+	private Stoichiometries(int[] rids, int[] substrateStart, int[] substrateIds, int[] substrateStoich, int[] productStart, int[] productIds, int[] productStoich) {
+		this.rids = rids;
+		this.substrateStart = substrateStart;
+		this.substrateIds = substrateIds;
+		this.substrateStoich = substrateStoich;
+		this.productStart = productStart;
+		this.productIds = productIds;
+		this.productStoich = productStoich;
+	}
+
+	/**
+	 * @return the number of reactions
+	 */
+	public int size() {
+		return rids.length;
+	}
+
+	/**
+	 * @return the sorted ids of the reactions
+	 */
+	public int[] reactionIds() {
+		return rids;
+	}
+
+	/**
+	 * @param rid a reaction id
+	 * @return the position of the reaction in reactionIds() or a negative value, if the reaction has not been loaded
+	 */
+	public int indexOf(int rid) {
+		return Arrays.binarySearch(rids, rid);
+	}
+
+	public int[] substrateStart() {
+		return substrateStart;
+	}
+
+	public int[] substrateIds() {
+		return substrateIds;
+	}
+
+	public int[] substrateStoichiometries() {
+		return substrateStoich;
+	}
+
+	public int[] productStart() {
+		return productStart;
+	}
+
+	public int[] productIds() {
+		return productIds;
+	}
+
+	public int[] productStoichiometries() {
+		return productStoich;
+	}
+
+	/**
+	 * @param rid a reaction id
+	 * @return the substrates of the reaction mapped to their stoichiometric coefficients, as returned by InteractionDB.loadSubstrates, or null if the reaction has not been loaded
+	 */
+	public TreeMap<Integer, Integer> substrates(int rid) {
+		return map(indexOf(rid), substrateStart, substrateIds, substrateStoich);
+	}
+
+	/**
+	 * @param rid a reaction id
+	 * @return the products of the reaction mapped to their stoichiometric coefficients, as returned by InteractionDB.loadProducts, or null if the reaction has not been loaded
+	 */
+	public TreeMap<Integer, Integer> products(int rid) {
+		return map(indexOf(rid), productStart, productIds, productStoich);
+	}
+
+	private static TreeMap<Integer, Integer> map(int index, int[] start, int[] ids, int[] stoich) {
+		if (index < 0) return null;
+		TreeMap<Integer, Integer> result = new TreeMap<Integer, Integer>();
+		for (int i = start[index]; i < start[index + 1]; i++) result.put(ids[i], stoich[i]);
+		return result;
+	}
+
+	public String toString() {
+		return "Stoichiometries(" + rids.length + " reactions, " + substrateIds.length + " substrates, " + productIds.length + " products)";
+	}
+}
@@ -0,0 +1,239 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * a unit of work: all statements of the current thread between begin() and commit() are executed on one connection and committed at once.
+ * Typical use:
+ *
+ * <pre>
+ * Transaction transaction = Transaction.begin();
+ * try {
+ * 	...
+ * 	transaction.commit();
+ * } finally {
+ * 	transaction.end(); // rolls back, if commit was not reached
+ * }
+ * </pre>
+ *
+ * Transactions begun directly are not repeated after transient failures. Use run(...) to roll back and replay the whole unit of work in that case.
+ * Transactions begun while the thread is within another transaction join the outer one. If a nested transaction is rolled back, the outer one can not be committed any more.
+ * Cache entries written by cache(...) within a transaction are published after the outermost transaction has been committed, so rolled back rows are never cached;
+ * entries removed by invalidate(...) are removed again after the commit.
+ */
+public class Transaction {
+
+	private static final ThreadLocal<Transaction> current = new ThreadLocal<Transaction>();
+
+	/**
+	 * a cache entry, which is published after commit. An entry without value removes the key from the cache.
+	 */
+	private static class PendingEntry<K, V> {
+		private final LruCache<K, V> cache;
+		private final K key;
+		private final V value;
+
+		private PendingEntry(LruCache<K, V> cache, K key, V value) {
+			this.cache = cache;
+			this.key = key;
+			this.value = value;
+		}
+
+		private void publish() {
+			if (value == null) {
+				cache.invalidate(key);
+			} else cache.put(key, value);
+		}
+	}
+
+	private final ConnectionPool pool;
+	private final Transaction outer;
+	private boolean rollbackOnly = false;
+	private boolean finished = false;
+	private ArrayList<PendingEntry<?, ?>> pending = null; // only used by the outermost transaction
+	private ArrayList<Runnable> rollbackActions = null; // likewise
+
+	private Transaction(ConnectionPool pool, Transaction outer) {
+		this.pool = pool;
+		this.outer = outer;
+	}
+
+	/**
+	 * starts a transaction or joins the transaction the current thread is within
+	 *
+	 * @return the transaction, which has to be ended by the current thread
+	 * @throws SQLException if the transaction can not be started
+	 * @throws IOException if config file can not be read
+	 */
+	public static Transaction begin() throws SQLException, IOException {
+		ConnectionPool pool = InteractionDB.connectionPool();
+		pool.begin();
+		Transaction transaction = new Transaction(pool, current.get());
+		current.set(transaction);
+		RetryPolicy.enter();
+		return transaction;
+	}
+
+	/**
+	 * runs the operation in a transaction. Transient failures (see RetryPolicy) roll back the transaction, which is then replayed as a whole according to InteractionDB.retryPolicy().
+	 * Within another transaction, the operation joins the outer one and is not repeated on its own: failures are passed to the outer transaction.
+	 * As it may be run several times, the operation must not keep state between runs.
+	 *
+	 * @param operation the unit of work
+	 * @return the result of the operation
+	 * @throws SQLException if the operation failed permanently or the number of attempts is exhausted
+	 * @throws IOException
+	 */
+	public static <T> T run(final RetryPolicy.Operation<T> operation) throws SQLException, IOException {
+		RetryPolicy.Operation<T> unit = new RetryPolicy.Operation<T>() {
+			public T run() throws SQLException, IOException {
+				Transaction transaction = begin();
+				try {
+					T result = operation.run();
+					transaction.commit();
+					return result;
+				} finally {
+					transaction.end();
+				}
+			}
+		};
+		if (active()) return unit.run();
+		return InteractionDB.retryPolicy().run(unit, true);
+	}
+
+	/**
+	 * puts an entry into a cache. Within a transaction, the entry is kept back until the outermost transaction has been committed, and dropped, if it is rolled back.
+	 *
+	 * @param cache the cache
+	 * @param key the key
+	 * @param value the value
+	 */
+	static <K, V> void cache(LruCache<K, V> cache, K key, V value) {
+		if (value == null) return;
+		Transaction transaction = current.get();
+		if (transaction == null) {
+			cache.put(key, value);
+			return;
+		}
+		transaction.root().defer(new PendingEntry<K, V>(cache, key, value));
+	}
+
+	/**
+	 * removes an entry from a cache. Within a transaction, it is removed once more after the outermost transaction has been committed,
+	 * as other threads may cache the old value again until the commit, and entries cached before by the transaction itself are not published.
+	 *
+	 * @param cache the cache
+	 * @param key the key
+	 */
+	static <K, V> void invalidate(LruCache<K, V> cache, K key) {
+		cache.invalidate(key);
+		Transaction transaction = current.get();
+		if (transaction != null) transaction.root().defer(new PendingEntry<K, V>(cache, key, null));
+	}
+
+	private void defer(PendingEntry<?, ?> entry) {
+		if (pending == null) pending = new ArrayList<PendingEntry<?, ?>>();
+		pending.add(entry);
+	}
+
+	/**
+	 * registers an action, which is run if the outermost transaction of the current thread is rolled back or its commit fails, e.g. to restore state kept outside the database
+	 *
+	 * @param action the action. It is dropped, if the transaction is committed.
+	 */
+	static void onRollback(Runnable action) {
+		Transaction transaction = current.get();
+		if (transaction == null) return;
+		Transaction root = transaction.root();
+		if (root.rollbackActions == null) root.rollbackActions = new ArrayList<Runnable>();
+		root.rollbackActions.add(action);
+	}
+
+	/**
+	 * @return true, if the current thread is within a transaction
+	 */
+	public static boolean active() {
+		return current.get() != null;
+	}
+
+	private void finish() {
+		finished = true;
+		RetryPolicy.exit();
+		if (outer == null) {
+			current.remove();
+		} else current.set(outer);
+	}
+
+	private Transaction root() {
+		Transaction root = this;
+		while (root.outer != null) root = root.outer;
+		return root;
+	}
+
+	/**
+	 * commits the transaction. Nested transactions only hand over to the outer transaction.
+	 *
+	 * @throws SQLException if the commit failed or a nested transaction has been rolled back. The transaction is rolled back in that case.
+	 * @throws IOException
+	 */
+	public void commit() throws SQLException, IOException {
+		if (finished) throw new IllegalStateException("transaction already ended");
+		finish();
+		if (outer == null && rollbackOnly) {
+			rollback();
+			throw new SQLException("Transaction has been rolled back, as a nested transaction failed.");
+		}
+		try {
+			pool.commit();
+		} catch (SQLException e) {
+			pending = null;
+			rolledBack();
+			throw e;
+		}
+		if (outer != null) return;
+		rollbackActions = null;
+		if (pending != null) {
+			for (PendingEntry<?, ?> entry : pending) entry.publish();
+			pending = null;
+		}
+	}
+
+	/**
+	 * rolls back the transaction, unless it has been committed. To be called in a finally block.
+	 *
+	 * @throws IOException
+	 */
+	public void end() throws IOException {
+		if (finished) return;
+		finish();
+		if (outer != null) {
+			root().rollbackOnly = true;
+			try {
+				pool.rollback(); // only leaves the nested transaction
+			} catch (SQLException e) {}
+			return;
+		}
+		rollback();
+	}
+
+	private void rollback() throws IOException {
+		try {
+			pool.rollback();
+		} catch (SQLException e) {
+			Tools.warn("rollback failed: " + e.getMessage());
+		} finally {
+			pending = null;
+			rolledBack();
+		}
+	}
+
+	private void rolledBack() {
+		ArrayList<Runnable> actions = rollbackActions;
+		rollbackActions = null;
+		if (actions != null) for (Runnable action : actions) action.run();
+	}
+}
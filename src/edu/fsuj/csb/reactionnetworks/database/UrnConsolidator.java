@@ -0,0 +1,271 @@
+package edu.fsuj.csb.reactionnetworks.database;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import edu.fsuj.csb.tools.xml.NoTokenException;
+import edu.fsuj.csb.tools.xml.Tools;
+
+/**
+ * unifies the ids of the whole database in one run, instead of merging them one by one while importing.
+ *
+ * Two ids belong to the same entity, if they are assigned to equal urns or if a pair of them was recorded in the unifications table,
+ * which InteractionDB fills instead of merging ids, while deferred unification is enabled (see InteractionDB.setDeferredUnification).
+ * The ids are grouped by a union-find structure over an array indexed by id. The denyUnification rules of the urn rules file are enforced as cannot-link constraints:
+ * two groups are not united, if one contains the id of urn1 and the other the id of urn2 of a rule. Ids of different types are never united.
+ *
+ * Each group of substances is merged into its smallest id by a few set-based statements per table, all within one transaction.
+ * Groups of other types are only reported, as InteractionDB can merge substances only.
+ */
+public class UrnConsolidator {
+
+	private int[] parent;
+	private byte[] types;
+	/** ids, which must not be united with the group of the root, by root id. Only present for groups affected by a rule. */
+	private final HashMap<Integer, TreeSet<Integer>> denied = new HashMap<Integer, TreeSet<Integer>>();
+	private int unions = 0;
+	private int rejected = 0;
+	private int skippedGroups = 0;
+
+	/**
+	 * @return the representative of the group of the id. The smallest id of a group is its representative.
+	 */
+	private int find(int id) {
+		while (parent[id] != id) {
+			parent[id] = parent[parent[id]]; // path halving
+			id = parent[id];
+		}
+		return id;
+	}
+
+	/**
+	 * unites the groups of the two ids, unless they have different types or a rule denies the unification
+	 */
+	private void union(int a, int b) {
+		if (a <= 0 || b <= 0 || a >= parent.length || b >= parent.length) return;
+		int ra = find(a);
+		int rb = find(b);
+		if (ra == rb) return;
+		if (types[ra] != types[rb] || deniedBetween(ra, rb) || deniedBetween(rb, ra)) {
+			rejected++;
+			return;
+		}
+		int root = Math.min(ra, rb);
+		int other = Math.max(ra, rb);
+		parent[other] = root;
+		TreeSet<Integer> deniedOfOther = denied.remove(other);
+		if (deniedOfOther != null) {
+			TreeSet<Integer> deniedOfRoot = denied.get(root);
+			if (deniedOfRoot == null) {
+				denied.put(root, deniedOfOther);
+			} else deniedOfRoot.addAll(deniedOfOther);
+		}
+		unions++;
+	}
+
+	private boolean deniedBetween(int root, int otherRoot) {
+		TreeSet<Integer> ids = denied.get(root);
+		if (ids == null) return false;
+		for (Integer id : ids) {
+			if (find(id) == otherRoot) return true;
+		}
+		return false;
+	}
+
+	private void deny(int a, int b) {
+		TreeSet<Integer> ids = denied.get(a);
+		if (ids == null) denied.put(a, ids = new TreeSet<Integer>());
+		ids.add(b);
+	}
+
+	/**
+	 * reads the ids and their types
+	 */
+	private void readIds() throws SQLException, IOException {
+		int maxId = InteractionDB.getLastID();
+		parent = new int[maxId + 1];
+		types = new byte[maxId + 1];
+		for (int i = 0; i <= maxId; i++) parent[i] = i;
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				int id = rs.getInt(1);
+				if (id < types.length) types[id] = (byte) rs.getInt(2);
+			}
+		}, "SELECT id, type FROM ids");
+	}
+
+	/**
+	 * translates the urn pairs of the denyUnification rules into pairs of ids. Has to be called before the first union.
+	 */
+	private void readRules() throws SQLException, IOException, NoTokenException {
+		TreeMap<String, TreeSet<String>> rules = InteractionDB.loadUnificationRules();
+		TreeSet<String> urns = Tools.StringSet();
+		for (Entry<String, TreeSet<String>> rule : rules.entrySet()) {
+			urns.add(rule.getKey());
+			urns.addAll(rule.getValue());
+		}
+		final TreeMap<String, TreeSet<Integer>> idsOfUrns = new TreeMap<String, TreeSet<Integer>>();
+		for (Vector<String> chunk : InteractionDB.chunks(urns)) {
+			Vector<String> digests = new Vector<String>(chunk.size());
+			for (String urn : chunk) digests.add(InteractionDB.digest(urn));
+			InteractionDB.query(new InteractionDB.RowHandler() {
+				public void handle(ResultSet rs) throws SQLException {
+					String urn = rs.getString(1);
+					if (!idsOfUrns.containsKey(urn)) idsOfUrns.put(urn, new TreeSet<Integer>());
+					idsOfUrns.get(urn).add(rs.getInt(2));
+				}
+			}, "SELECT urn, id FROM urns WHERE id IS NOT NULL AND digest IN " + InteractionDB.placeholders(digests.size()), digests);
+		}
+		for (Entry<String, TreeSet<String>> rule : rules.entrySet()) {
+			TreeSet<Integer> ids1 = idsOfUrns.get(rule.getKey());
+			if (ids1 == null) continue;
+			for (String urn2 : rule.getValue()) {
+				TreeSet<Integer> ids2 = idsOfUrns.get(urn2);
+				if (ids2 == null) continue;
+				for (Integer id1 : ids1) {
+					for (Integer id2 : ids2) {
+						deny(id1, id2);
+						deny(id2, id1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * unites the ids of equal urns. The urns are read in sorted order, so equal urns follow each other.
+	 */
+	private void readUrns() throws SQLException, IOException {
+		final HashMap<String, Integer> group = new HashMap<String, Integer>(); // the urns equal to the previous one, ignoring case, as the database may sort case insensitive
+		final String[] previous = { null };
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				String urn = rs.getString(1);
+				int id = rs.getInt(2);
+				if (previous[0] == null || !previous[0].equalsIgnoreCase(urn)) group.clear();
+				previous[0] = urn;
+				Integer other = group.get(urn);
+				if (other == null) {
+					group.put(urn, id);
+				} else union(other, id);
+			}
+		}, "SELECT urn, id FROM urns WHERE id IS NOT NULL ORDER BY urn");
+	}
+
+	/**
+	 * unites the ids recorded while unification was deferred
+	 */
+	private void readUnifications() throws SQLException, IOException {
+		InteractionDB.stream(new InteractionDB.RowHandler() {
+			public void handle(ResultSet rs) throws SQLException {
+				union(rs.getInt(1), rs.getInt(2));
+			}
+		}, "SELECT id1, id2 FROM unifications");
+	}
+
+	/**
+	 * @return the ids to be merged, mapped to the id they are merged into
+	 */
+	private TreeMap<Integer, Integer> merges() {
+		TreeMap<Integer, Integer> result = new TreeMap<Integer, Integer>();
+		TreeSet<Integer> skipped = new TreeSet<Integer>();
+		for (int id = 1; id < parent.length; id++) {
+			int root = find(id);
+			if (root == id) continue;
+			if (types[root] == InteractionDB.SUBSTANCE) {
+				result.put(id, root);
+			} else skipped.add(root);
+		}
+		skippedGroups = skipped.size();
+		return result;
+	}
+
+	/**
+	 * merges the ids in the database
+	 */
+	private void apply(TreeMap<Integer, Integer> merges) throws SQLException, IOException {
+		Dialect dialect = InteractionDB.dialect();
+		InteractionDB.flushBulkLoad(); // buffered reactants of the merged ids have to be re-assigned, too
+		Transaction transaction = Transaction.begin();
+		try {
+			InteractionDB.update("DELETE FROM id_merges");
+			Vector<Integer> values = new Vector<Integer>();
+			int rows = 0;
+			for (Iterator<Entry<Integer, Integer>> it = merges.entrySet().iterator(); it.hasNext();) {
+				Entry<Integer, Integer> merge = it.next();
+				values.add(merge.getKey());
+				values.add(merge.getValue());
+				if (++rows == InteractionDB.CHUNK_SIZE || !it.hasNext()) {
+					InteractionDB.update("INSERT INTO id_merges (merged, kept) VALUES " + InteractionDB.placeholders(2, rows), values);
+					values.clear();
+					rows = 0;
+				}
+			}
+			for (String table : new String[] { "products", "substrates" }) {
+				InteractionDB.update(dialect.insertIgnoreSelect(table, "sid, rid, stoich", 2, "SELECT DISTINCT m.kept, r.rid, 0 FROM " + table + " r, id_merges m WHERE r.sid=m.merged"));
+				InteractionDB.update(dialect.updateJoined(table + " k", "(SELECT m.kept, r.rid, SUM(r.stoich) AS stoich FROM " + table + " r, id_merges m WHERE r.sid=m.merged GROUP BY m.kept, r.rid) s", "k.sid=s.kept AND k.rid=s.rid", "k.stoich=k.stoich+s.stoich"));
+				InteractionDB.update(dialect.deleteJoined(table, "sid, rid", table + ", id_merges", table + ".sid=id_merges.merged"));
+			}
+			InteractionDB.update(dialect.updateJoined("abbrevations a", "id_merges m", "a.id=m.merged", "a.id=m.kept"));
+			InteractionDB.update(dialect.deleteJoined("substances", "id", "substances, id_merges", "substances.id=id_merges.merged"));
+			InteractionDB.update(dialect.updateJoined("urns u", "id_merges m", "u.id=m.merged", "u.id=m.kept"));
+			InteractionDB.update(dialect.insertIgnoreSelect("id_names", "id, nid, lid", 3, "SELECT DISTINCT m.kept, n.nid, n.lid FROM id_names n, id_merges m WHERE n.id=m.merged"));
+			InteractionDB.update(dialect.deleteJoined("id_names", "id, nid, lid", "id_names, id_merges", "id_names.id=id_merges.merged"));
+			InteractionDB.update("DELETE FROM unifications");
+			InteractionDB.update("DELETE FROM id_merges");
+			transaction.commit();
+		} finally {
+			transaction.end();
+			LruCache<Integer, String> formulas = InteractionDB.formulaCache();
+			for (Integer merged : merges.keySet()) formulas.invalidate(merged);
+		}
+	}
+
+	/**
+	 * computes the groups of equivalent ids and merges them
+	 *
+	 * @return the number of ids merged into others
+	 * @throws SQLException
+	 * @throws IOException
+	 * @throws NoTokenException if the urn rules file is malformed
+	 */
+	public int consolidate() throws SQLException, IOException, NoTokenException {
+		Tools.startMethod("UrnConsolidator.consolidate()");
+		readIds();
+		readRules();
+		readUnifications();
+		readUrns();
+		TreeMap<Integer, Integer> merges = merges();
+		if (skippedGroups > 0) Tools.warn(skippedGroups + " groups of ids, which are no substances, can not be merged");
+		if (!merges.isEmpty()) apply(merges);
+		parent = null;
+		types = null;
+		Tools.endMethod(this);
+		return merges.size();
+	}
+
+	/**
+	 * @return the number of unions performed by the last run
+	 */
+	public int getUnionCount() {
+		return unions;
+	}
+
+	/**
+	 * @return the number of unions refused by the last run, as the ids had different types or a rule denied them
+	 */
+	public int getRejectedCount() {
+		return rejected;
+	}
+
+	public String toString() {
+		return "UrnConsolidator(unions: " + unions + ", rejected: " + rejected + ", skipped groups: " + skippedGroups + ")";
+	}
+}